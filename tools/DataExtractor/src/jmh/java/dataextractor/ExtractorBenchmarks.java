@@ -0,0 +1,140 @@
+package dataextractor;
+
+import com.google.common.collect.*;
+import dataextractor.Main.*;
+import net.minecraft.*;
+import net.minecraft.core.*;
+import net.minecraft.resources.*;
+import net.minecraft.server.*;
+import net.minecraft.world.level.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.block.state.*;
+import net.minecraft.world.level.block.state.properties.*;
+import net.minecraft.world.phys.shapes.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.infra.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Benchmarks for the hot paths of the extractor.
+ * <p>
+ * `inflation` is the number of copies of the vanilla block registry to extract, each block name
+ * suffixed by the copy index (`stone`, `stone_1`, `stone_2`, ...), to simulate large modded registries.
+ * The serialization benchmarks use a registry where the copies are not merged into a single
+ * entry with multiple names, so that the output size scales with the inflation.
+ * <p>
+ * Run with `gradlew jmh`, results are written to jmh-results.json.
+ * Benchmarks return Object because the extractor types are package-private, and JMH's
+ * generated classes live in a different package.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractorBenchmarks
+{
+    @Param({ "1", "4", "16" })
+    public int inflation;
+
+    private List<Map.Entry<ResourceLocation, Block>> entries;
+    private List<BlockState> states;
+    private List<VoxelShape> shapes;
+    private XData data;
+    private Path outPath;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+
+        var blocks = ImmutableList.copyOf(Registry.BLOCK);
+        entries = new ArrayList<>();
+        for (int i = 0; i < inflation; i++) {
+            String suffix = i == 0 ? "" : "_" + i;
+            for (Block block : blocks) {
+                var key = Registry.BLOCK.getKey(block);
+                entries.add(Map.entry(new ResourceLocation(key.getNamespace(), key.getPath() + suffix), block));
+            }
+        }
+        states = entries.stream()
+                        .flatMap(e -> e.getValue().getStateDefinition().getPossibleStates().stream())
+                        .collect(Collectors.toList());
+        shapes = states.stream()
+                       .map(s -> s.getOcclusionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO).optimize())
+                       .collect(Collectors.toList());
+
+        data = Main.extract(entries, false);
+        outPath = Files.createTempFile("blocks", ".json");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        Files.deleteIfExists(outPath);
+    }
+
+    @Benchmark
+    public void getStateIndex(Blackhole bh)
+    {
+        for (BlockState state : states) {
+            bh.consume(XBlock.getStateIndex(state));
+        }
+    }
+
+    @Benchmark
+    public void getValueIndex(Blackhole bh)
+    {
+        for (BlockState state : states) {
+            for (Property<?> prop : state.getProperties()) {
+                bh.consume(XBlock.getValueIndex(state, prop));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sortStates(Blackhole bh)
+    {
+        for (var entry : entries) {
+            bh.consume(ImmutableList.sortedCopyOf(
+                Comparator.comparingInt(XBlock::getStateIndex),
+                entry.getValue().getStateDefinition().getPossibleStates()
+            ));
+        }
+    }
+
+    @Benchmark
+    public Object internShapes()
+    {
+        var data = new XData();
+        for (VoxelShape shape : shapes) {
+            data.getShapeId(shape, ShapeMasks.getCanonicalKey(shape));
+        }
+        return data;
+    }
+
+    @Benchmark
+    public Object extract()
+    {
+        return Main.extract(entries);
+    }
+
+    @Benchmark
+    public void serialize() throws Exception
+    {
+        JsonOutput.write(data, outPath);
+    }
+
+    @Benchmark
+    public String digest() throws Exception
+    {
+        return JsonOutput.digest(data);
+    }
+}
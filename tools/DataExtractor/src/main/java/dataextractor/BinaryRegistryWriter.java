@@ -0,0 +1,353 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import dataextractor.Main.XBlockProperty.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Writes the extracted registry as a flat little-endian blob, which can be memory mapped
+ * and indexed in place without a parse step.
+ *
+ * <pre>
+ * Header     { u32 magic = "APRB", u16 formatVersion, u16 numSections, i32 worldVersion, i32 numBlockStates }
+ * Directory  { u32 tag, u32 offset, u32 length }[numSections]
+ * Sections   each starts at a 8 byte aligned offset, with a u32 element count.
+ *
+ * STRS  u32 offsets[count + 1], relative to the end of the offset table; u8 utf8Chars[]
+ * MATL  { u32 name, u32 attribs, u32 mapColor }[count]
+ * PROP  { u32 name, u8 type (0=bool 1=int 2=enum), u8 _pad, u16 numValues, i32 min, u32 firstValue }[count]
+ * PVAL  u32 enumValueNames[count]
+ * BLKS  { u32 firstName, u16 numNames, u16 numProps, u32 firstProp, u32 numStates,
+ *         u32 defaultStateId, u32 material, u32 firstState, u32 _pad }[count]
+ * BNAM  u32 blockNames[count]          (string ids, indexed by BLKS.firstName)
+ * BPRP  u32 blockProps[count]          (PROP ids, indexed by BLKS.firstProp)
+ * SFLG  u8  flags[count]               (indexed by BLKS.firstState + stateId)
+ * SLIT  u8  light[count]               (emission << 4 | opacity)
+ * SSHP  u16 occlusionShapes[count]     (SHPS ids)
+ * SSTF  u8  sturdyFaces[count]         (bit `1 << Direction.ordinal()` set for faces that fully hide the neighbor)
+ * SHGT  u8  heightmaps[count]          (bit `1 << Heightmap.Types.ordinal()` set if opaque for that heightmap)
+ * GFLG  u8  flags[count]               (global state table, indexed by the global state id, see XStateTable)
+ * GLIT  u8  light[count]
+ * GSHP  u16 occlusionShapes[count]
+ * GHGT  u8  heightmaps[count]
+ * GBLK  u32 blocks[count]              (BNAM index of the block owning the state)
+ * GORD  u32 stateOrder[count]          (registry order id of each global state, only if frequency ordered)
+ * GLCL  u16 lightClasses[count]        (LCLS index of each global state)
+ * GACL  u16 attribClasses[count]       (ACLS index of each global state)
+ * LCLS  { u8 light, u8 useShape, u16 occlusionShape }[count]   (useShape = opaque && useShapeForLightOcclusion)
+ * ACLS  { u8 flags, u8 light, u16 occlusionShape, u8 heightmaps, u8 _pad[3] }[count]
+ * HDSP  u32 displacements[count]      (state key hash, see StateKeyHash)
+ * HSLT  u32 slots[count]              (global state ids)
+ * BSTR  u32 propStrides[count]        (mixed-radix stride of each property, indexed by BLKS.firstProp)
+ * SHPS  u32 offsets[count + 1], in boxes; i8 boxes[][6] as {minX, minY, minZ, maxX, maxY, maxZ}
+ * SFAC  u32 _pad; u64 faceMasks[count][6 * 4]   (per shape, see ShapeMasks.getFaceMasks())
+ * SVOX  u32 _pad; u64 voxels[count][64]         (per shape, see ShapeMasks.getVoxels())
+ * </pre>
+ * Strings are referenced by their index in STRS. New columns are added as new sections,
+ * readers should look sections up by tag and ignore unknown ones.
+ */
+class BinaryRegistryWriter
+{
+    public static final int MAGIC = 'A' | 'P' << 8 | 'R' << 16 | 'B' << 24;
+    public static final int FORMAT_VERSION = 1;
+
+    private final XData data;
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final Map<XBlockProperty, Integer> props = new LinkedHashMap<>();
+    private final List<Section> sections = new ArrayList<>();
+
+    private BinaryRegistryWriter(XData data)
+    {
+        this.data = data;
+    }
+
+    public static void write(XData data, Path path) throws IOException
+    {
+        var writer = new BinaryRegistryWriter(data);
+        writer.buildSections();
+        writer.writeTo(path);
+    }
+
+    private void buildSections()
+    {
+        var materials = section("MATL");
+        for (XMaterial mat : data.materials) {
+            materials.count++;
+            materials.u32(str(mat.name)).u32(mat.attribs).u32(mat.mapColor);
+        }
+
+        var blocks = section("BLKS");
+        var names = section("BNAM");
+        var blockProps = section("BPRP");
+        var flags = section("SFLG");
+        var light = section("SLIT");
+        var shapes = section("SSHP");
+        var sturdyFaces = section("SSTF");
+        var heightmaps = section("SHGT");
+
+        for (XBlock block : data.blocks) {
+            blocks.count++;
+            blocks.u32(names.count).u16(block.names.size())
+                  .u16(block.properties.size()).u32(blockProps.count)
+                  .u32(block.numStates).u32(block.defaultStateId)
+                  .u32(str(block.material)).u32(flags.count).u32(0);
+
+            for (String name : block.names) {
+                names.count++;
+                names.u32(str(name));
+            }
+            for (XBlockProperty prop : block.properties) {
+                blockProps.count++;
+                blockProps.u32(props.computeIfAbsent(prop, k -> props.size()));
+            }
+            var states = block.states;
+            for (int i = 0; i < block.numStates; i++) {
+                flags.count++;
+                light.count++;
+                shapes.count++;
+                sturdyFaces.count++;
+                heightmaps.count++;
+                flags.u8(states.rawFlags[i]);
+                light.u8(states.rawLight[i]);
+                shapes.u16(states.rawOcclusionShapes[i]);
+                sturdyFaces.u8(states.rawSturdyFaces[i]);
+                heightmaps.u8(states.rawHeightmaps[i]);
+            }
+        }
+
+        var table = data.stateTable;
+        var globalFlags = section("GFLG");
+        var globalLight = section("GLIT");
+        var globalShapes = section("GSHP");
+        var globalHeightmaps = section("GHGT");
+        var globalBlocks = section("GBLK");
+        for (int i = 0; i < table.flags.length; i++) {
+            globalFlags.u8(table.flags[i]);
+            globalLight.u8(table.light[i]);
+            globalShapes.u16(table.occlusionShapes[i]);
+            globalHeightmaps.u8(table.heightmaps[i]);
+            globalBlocks.u32(table.blocks[i]);
+        }
+        globalFlags.count = globalLight.count = globalShapes.count = globalHeightmaps.count = globalBlocks.count = table.flags.length;
+
+        if (data.stateOrder != null) {
+            var globalOrder = section("GORD");
+            for (int id : data.stateOrder) {
+                globalOrder.u32(id);
+            }
+            globalOrder.count = data.stateOrder.length;
+        }
+
+        var globalLightClasses = section("GLCL");
+        var globalAttribClasses = section("GACL");
+        for (int i = 0; i < table.flags.length; i++) {
+            globalLightClasses.u16(table.lightClasses[i]);
+            globalAttribClasses.u16(table.attribClasses[i]);
+        }
+        globalLightClasses.count = globalAttribClasses.count = table.flags.length;
+
+        var lightClasses = section("LCLS");
+        for (int[] cls : table.lightClassTable) {
+            lightClasses.count++;
+            lightClasses.u8(cls[0]).u8(cls[1]).u16(cls[2]);
+        }
+        var attribClasses = section("ACLS");
+        for (int[] cls : table.attribClassTable) {
+            attribClasses.count++;
+            attribClasses.u8(cls[0]).u8(cls[1]).u16(cls[2]).u8(cls[3]).u8(0).u16(0);
+        }
+
+        var hash = data.stateKeyHash;
+        if (hash != null) {
+            var displacements = section("HDSP");
+            var slots = section("HSLT");
+            var strides = section("BSTR");
+            for (int d : hash.displacements) {
+                displacements.u32(d);
+            }
+            for (int id : hash.slots) {
+                slots.u32(id);
+            }
+            for (int[] blockStrides : hash.strides) {
+                for (int stride : blockStrides) {
+                    strides.u32(stride);
+                }
+                strides.count += blockStrides.length;
+            }
+            displacements.count = hash.displacements.length;
+            slots.count = hash.slots.length;
+        }
+
+        var propDefs = section("PROP");
+        var propValues = section("PVAL");
+        for (XBlockProperty prop : props.keySet()) {
+            propDefs.count++;
+            propDefs.u32(str(prop.name));
+
+            if (prop instanceof XPropBool) {
+                propDefs.u8(0).u8(0).u16(2).u32(0).u32(0);
+            } else if (prop instanceof XPropInt p) {
+                propDefs.u8(1).u8(0).u16(p.max - p.min + 1).u32(p.min).u32(0);
+            } else if (prop instanceof XPropEnum p) {
+                propDefs.u8(2).u8(0).u16(p.values.size()).u32(0).u32(propValues.count);
+
+                for (String value : p.values) {
+                    propValues.count++;
+                    propValues.u32(str(value));
+                }
+            } else {
+                throw new IllegalStateException("Unknown property type " + prop.type);
+            }
+        }
+
+        var shapeTable = section("SHPS");
+        var boxes = new Section(null);
+        shapeTable.count = data.shapes.size();
+        shapeTable.u32(0);
+        for (int[] shape : data.shapes) {
+            for (int v : shape) {
+                boxes.u8(v);
+            }
+            boxes.count += shape.length / 6;
+            shapeTable.u32(boxes.count);
+        }
+        shapeTable.append(boxes);
+
+        var shapeFaces = section("SFAC");
+        shapeFaces.u32(0); //align masks to 8 bytes
+        for (long[] masks : data.shapeFaces) {
+            shapeFaces.count++;
+            for (long mask : masks) {
+                shapeFaces.u64(mask);
+            }
+        }
+
+        var shapeVoxels = section("SVOX");
+        shapeVoxels.u32(0); //align to 8 bytes
+        for (long[] voxels : data.shapeVoxels) {
+            shapeVoxels.count++;
+            for (long bits : voxels) {
+                shapeVoxels.u64(bits);
+            }
+        }
+
+        //strings must be the last section to be built, since all others reference it.
+        var strTable = new Section("STRS");
+        var chars = new Section(null);
+        strTable.count = strings.size();
+        strTable.u32(0);
+        for (String str : strings.keySet()) {
+            chars.bytes(str.getBytes(StandardCharsets.UTF_8));
+            strTable.u32(chars.buf.position());
+        }
+        strTable.append(chars);
+        sections.add(0, strTable);
+    }
+
+    private void writeTo(Path path) throws IOException
+    {
+        int headerSize = 16 + sections.size() * 12;
+        var header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putShort((short)FORMAT_VERSION);
+        header.putShort((short)sections.size());
+        header.putInt(data.worldVersion);
+        header.putInt(data.numBlockStates);
+
+        int pos = align(headerSize);
+        for (Section sect : sections) {
+            header.putInt(sect.tag);
+            header.putInt(pos);
+            header.putInt(sect.length());
+            pos = align(pos + sect.length());
+        }
+        header.flip();
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            pad(channel);
+
+            for (Section sect : sections) {
+                channel.write(sect.contents());
+                pad(channel);
+            }
+        }
+    }
+
+    private static void pad(FileChannel channel) throws IOException
+    {
+        int padding = (int)(align(channel.position()) - channel.position());
+        channel.write(ByteBuffer.allocate(padding));
+    }
+    private static int align(int pos) { return (pos + 7) & ~7; }
+    private static long align(long pos) { return (pos + 7) & ~7L; }
+
+    private int str(String str)
+    {
+        return strings.computeIfAbsent(str, k -> strings.size());
+    }
+    private Section section(String tag)
+    {
+        var sect = new Section(tag);
+        sections.add(sect);
+        return sect;
+    }
+
+    private static class Section
+    {
+        public final int tag;
+        public int count;
+        public ByteBuffer buf = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        public Section(String tag)
+        {
+            this.tag = tag == null ? 0 : ByteBuffer.wrap(tag.getBytes(StandardCharsets.US_ASCII)).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        }
+
+        public Section u8(int v)  { ensure(1).put((byte)v); return this; }
+        public Section u16(int v) { ensure(2).putShort((short)v); return this; }
+        public Section u32(int v) { ensure(4).putInt(v); return this; }
+        public Section u64(long v) { ensure(8).putLong(v); return this; }
+
+        public Section bytes(byte[] data)
+        {
+            ensure(data.length).put(data);
+            return this;
+        }
+        public Section append(Section other)
+        {
+            var contents = other.buf.duplicate().flip();
+            ensure(contents.remaining()).put(contents);
+            return this;
+        }
+
+        public int length()
+        {
+            return 4 + buf.position();
+        }
+        public ByteBuffer contents()
+        {
+            var res = ByteBuffer.allocate(length()).order(ByteOrder.LITTLE_ENDIAN);
+            res.putInt(count);
+            res.put(buf.duplicate().flip());
+            return res.flip();
+        }
+
+        private ByteBuffer ensure(int count)
+        {
+            if (buf.remaining() < count) {
+                int newCap = Math.max(buf.capacity() * 2, buf.position() + count);
+                var newBuf = ByteBuffer.allocate(newCap).order(ByteOrder.LITTLE_ENDIAN);
+                newBuf.put(buf.flip());
+                buf = newBuf;
+            }
+            return buf;
+        }
+    }
+}
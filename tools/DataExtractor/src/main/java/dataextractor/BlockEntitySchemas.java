@@ -0,0 +1,157 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import net.minecraft.core.*;
+import net.minecraft.nbt.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.block.entity.*;
+import net.minecraft.world.level.block.state.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Creates every block entity type without a level, saves its default NBT, and writes the tag layouts
+ * and common strings to block_entities.json, so the NBT packer can start with known schemas and strings.
+ * <p>
+ * Tag types are the NBT tag ids (same as the TagType enum).
+ */
+class BlockEntitySchemas
+{
+    public static void run(XData data) throws IOException
+    {
+        var output = new XBlockEntities();
+        output.version = data.version;
+        output.worldVersion = data.worldVersion;
+
+        var stringCounts = new HashMap<String, Integer>();
+
+        for (var def : saveDefaults()) {
+            var xtype = new XBlockEntityType();
+            xtype.id = Registry.BLOCK_ENTITY_TYPE.getKey(def.type).toString();
+            xtype.blocks.addAll(def.blocks);
+            output.types.add(xtype);
+
+            if (def.blocks.isEmpty()) {
+                xtype.error = "No valid blocks";
+            } else if (def.tag == null) {
+                //some block entities need a level to be saved
+                xtype.error = def.error.toString();
+                System.out.println("Failed to save block entity " + xtype.id + ": " + def.error);
+            } else {
+                xtype.schema = XTagSchema.create(def.tag);
+                collectStrings(def.tag, stringCounts, xtype.strings);
+            }
+        }
+        output.strings = stringCounts.entrySet()
+                                     .stream()
+                                     .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                                     .map(Map.Entry::getKey)
+                                     .collect(Collectors.toList());
+
+        JsonOutput.write(output, Path.of("block_entities.json"));
+    }
+
+    /**
+     * Creates each block entity type for the first of its valid blocks, without a level, and saves its default NBT.
+     * Types that need a level to be saved have a null `tag`.
+     */
+    public static List<DefaultTag> saveDefaults()
+    {
+        var defs = new ArrayList<DefaultTag>();
+
+        for (BlockEntityType<?> type : Registry.BLOCK_ENTITY_TYPE) {
+            var def = new DefaultTag();
+            def.type = type;
+            defs.add(def);
+
+            BlockState firstState = null;
+            for (Block block : Registry.BLOCK) {
+                var state = block.defaultBlockState();
+                if (type.isValid(state)) {
+                    if (firstState == null) firstState = state;
+                    def.blocks.add(XBlock.getName(Registry.BLOCK.getKey(block)));
+                }
+            }
+            if (firstState == null) continue;
+
+            try {
+                def.tag = type.create(BlockPos.ZERO, firstState).save(new CompoundTag());
+            } catch (Exception ex) {
+                def.error = ex;
+            }
+        }
+        return defs;
+    }
+
+    //Counts tag names and string values, and adds string values to `values`.
+    private static void collectStrings(Tag tag, Map<String, Integer> counts, Set<String> values)
+    {
+        if (tag instanceof CompoundTag compound) {
+            for (String key : compound.getAllKeys()) {
+                counts.merge(key, 1, Integer::sum);
+                collectStrings(compound.get(key), counts, values);
+            }
+        } else if (tag instanceof ListTag list) {
+            for (Tag elem : list) {
+                collectStrings(elem, counts, values);
+            }
+        } else if (tag instanceof StringTag str) {
+            counts.merge(str.getAsString(), 1, Integer::sum);
+            values.add(str.getAsString());
+        }
+    }
+
+    static class DefaultTag
+    {
+        public BlockEntityType<?> type;
+        //names of the valid blocks for `type`
+        public List<String> blocks = new ArrayList<>();
+        public CompoundTag tag;
+        public Exception error;
+    }
+
+    static class XBlockEntities
+    {
+        public String version;
+        public int worldVersion;
+        public List<XBlockEntityType> types = new ArrayList<>();
+        //tag names and string values from all types, most common first
+        public List<String> strings;
+    }
+    static class XBlockEntityType
+    {
+        public String id;
+        public List<String> blocks = new ArrayList<>();
+        public XTagSchema schema;
+        //string values in the default NBT
+        public Set<String> strings = new TreeSet<>();
+        public String error;
+    }
+    static class XTagSchema
+    {
+        public int type;
+        //compound fields, in name order
+        public Map<String, XTagSchema> fields;
+        //list element schema, absent if the list is empty
+        public XTagSchema elem;
+
+        public static XTagSchema create(Tag tag)
+        {
+            var schema = new XTagSchema();
+            schema.type = tag.getId();
+
+            if (tag instanceof CompoundTag compound) {
+                schema.fields = new TreeMap<>();
+                for (String key : compound.getAllKeys()) {
+                    schema.fields.put(key, create(compound.get(key)));
+                }
+            } else if (tag instanceof ListTag list && !list.isEmpty()) {
+                schema.elem = create(list.get(0));
+            }
+            return schema;
+        }
+    }
+}
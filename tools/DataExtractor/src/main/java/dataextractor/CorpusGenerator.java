@@ -0,0 +1,311 @@
+package dataextractor;
+
+import dataextractor.Main.Args;
+import net.minecraft.*;
+import net.minecraft.core.*;
+import net.minecraft.nbt.*;
+import net.minecraft.server.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.block.state.*;
+import net.minecraft.world.level.dimension.*;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.material.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import java.util.zip.*;
+
+/**
+ * Writes a deterministic set of Anvil region files for benchmarking, using the bootstrapped game.
+ * The output only depends on the arguments and the game version (run it with the classpath of
+ * another version to get a corpus for that version).
+ * <p>
+ * Content kinds:
+ * <ul>
+ *   <li>terrain: overworld terrain from XWorldGen (no features).</li>
+ *   <li>builds: terrain with dense random builds on top (stairs, slabs, fences, glass, ...).</li>
+ *   <li>modded: terrain with a large set of unknown blocks scattered through it, similar to modpack worlds.</li>
+ * </ul>
+ * Usage: CorpusGenerator [--out corpus] [--seed 1] [--regions 1] [--region-chunks 32] [--mix terrain,builds,modded] [--modded-blocks 2000]
+ * <p>
+ * Regions are written to `&lt;out&gt;/&lt;kind&gt;/region/r.&lt;x&gt;.0.mca`.
+ */
+public class CorpusGenerator
+{
+    private final long seed;
+    private final int regionChunks;
+    private final XWorldGen terrain;
+    private final List<BlockState> buildStates;
+    private final List<CompoundTag> moddedStates;
+
+    //cached palette entries, shared by identity
+    private final Map<BlockState, CompoundTag> stateTags = new IdentityHashMap<>();
+
+    public CorpusGenerator(long seed, int regionChunks, int numModdedBlocks)
+    {
+        this.seed = seed;
+        this.regionChunks = regionChunks;
+        this.terrain = new XWorldGen(LevelStem.OVERWORLD, seed);
+        this.buildStates = getBuildStates();
+        this.moddedStates = createModdedStates(numModdedBlocks, new Random(seed));
+
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            stateTags.put(state, NbtUtils.writeBlockState(state));
+        }
+    }
+
+    public static void main(String[] rawArgs) throws Throwable
+    {
+        var args = new Args(rawArgs);
+        var outDir = Path.of(args.get("--out", "corpus"));
+        long seed = Long.parseLong(args.get("--seed", "1"));
+        int numRegions = args.getInt("--regions", 1);
+        int regionChunks = args.getInt("--region-chunks", 32);
+        var kinds = args.get("--mix", "terrain,builds,modded").split(",");
+
+        if (regionChunks < 1 || regionChunks > 32) {
+            throw new IllegalArgumentException("--region-chunks must be between 1 and 32");
+        }
+
+        SharedConstants.tryDetectVersion();
+        System.out.println("Initializing Minecraft " + SharedConstants.getCurrentVersion().getName() + " registries...");
+        Bootstrap.bootStrap();
+
+        var gen = new CorpusGenerator(seed, regionChunks, args.getInt("--modded-blocks", 2000));
+
+        for (String kind : kinds) {
+            var regionDir = outDir.resolve(kind).resolve("region");
+            Files.createDirectories(regionDir);
+
+            for (int rx = 0; rx < numRegions; rx++) {
+                System.out.println("Generating " + kind + " region " + rx + "...");
+                var chunks = gen.generateRegion(kind, rx, 0);
+                writeRegion(regionDir.resolve("r." + rx + ".0.mca"), chunks);
+            }
+        }
+        System.out.println("Done");
+    }
+
+    public CompoundTag[] generateRegion(String kind, int regionX, int regionZ)
+    {
+        var chunks = new CompoundTag[32 * 32];
+
+        IntStream.range(0, regionChunks * regionChunks).parallel().forEach(i -> {
+            int x = i % regionChunks;
+            int z = i / regionChunks;
+            chunks[z * 32 + x] = generateChunk(kind, regionX * 32 + x, regionZ * 32 + z);
+        });
+        return chunks;
+    }
+
+    private CompoundTag generateChunk(String kind, int chunkX, int chunkZ)
+    {
+        var chunk = terrain.generate(chunkX, chunkZ);
+        int minY = chunk.getMinBuildHeight();
+        int height = chunk.getHeight();
+        var blocks = new CompoundTag[height * 256];
+
+        XWorldGen.forEachBlock(chunk, (x, y, z, state) -> {
+            blocks[(y - minY) * 256 + z * 16 + x] = stateTags.get(state);
+        });
+
+        var random = new Random(seed ^ (chunkX * 341873128712L + chunkZ * 132897987541L));
+        var surface = new int[256];
+        for (int i = 0; i < 256; i++) {
+            surface[i] = chunk.getHeight(Heightmap.Types.WORLD_SURFACE_WG, i & 15, i >> 4) + 1 - minY;
+        }
+        switch (kind) {
+            case "terrain" -> { }
+            case "builds" -> addBuilds(blocks, surface, height, random);
+            case "modded" -> addModdedBlocks(blocks, random);
+            default -> throw new IllegalArgumentException("Unknown content kind: " + kind);
+        }
+        return createChunkTag(chunkX, chunkZ, minY, blocks, chunk.getBiomes().writeBiomes());
+    }
+
+    //Places random hollow boxes with walls made of a few build blocks on top of the terrain.
+    private void addBuilds(CompoundTag[] blocks, int[] surface, int height, Random random)
+    {
+        int numBuilds = 2 + random.nextInt(6);
+
+        for (int b = 0; b < numBuilds; b++) {
+            int sx = 1 + random.nextInt(8), sz = 1 + random.nextInt(8), sy = 3 + random.nextInt(12);
+            int x0 = random.nextInt(16 - sx + 1), z0 = random.nextInt(16 - sz + 1);
+            int y0 = surface[z0 * 16 + x0];
+
+            var materials = new CompoundTag[1 + random.nextInt(4)];
+            for (int i = 0; i < materials.length; i++) {
+                materials[i] = stateTags.get(buildStates.get(random.nextInt(buildStates.size())));
+            }
+            for (int y = y0; y < Math.min(y0 + sy, height); y++) {
+                for (int z = z0; z < z0 + sz; z++) {
+                    for (int x = x0; x < x0 + sx; x++) {
+                        boolean wall = x == x0 || z == z0 || x == x0 + sx - 1 || z == z0 + sz - 1 || y == y0 || y == y0 + sy - 1;
+                        if (wall || random.nextInt(8) == 0) {
+                            blocks[y * 256 + z * 16 + x] = materials[random.nextInt(materials.length)];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //Replaces some solid blocks with unknown blocks, with a skewed distribution.
+    private void addModdedBlocks(CompoundTag[] blocks, Random random)
+    {
+        var air = stateTags.get(Blocks.AIR.defaultBlockState());
+        var water = stateTags.get(Blocks.WATER.defaultBlockState());
+
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i] != air && blocks[i] != water && random.nextInt(6) == 0) {
+                //x^3 makes lower indices much more common
+                double r = random.nextDouble();
+                blocks[i] = moddedStates.get((int)(r * r * r * moddedStates.size()));
+            }
+        }
+    }
+
+    /**
+     * Creates the NBT of a chunk in the current version's format, without light.
+     * `blocks` are palette entries in YZX order, starting at `minY`. All-air sections are omitted.
+     */
+    public static CompoundTag createChunkTag(int chunkX, int chunkZ, int minY, CompoundTag[] blocks, int[] biomes)
+    {
+        var level = new CompoundTag();
+        level.putInt("xPos", chunkX);
+        level.putInt("zPos", chunkZ);
+        level.putLong("LastUpdate", 0);
+        level.putLong("InhabitedTime", 0);
+        level.putString("Status", "full");
+        level.putBoolean("isLightOn", false);
+        level.putIntArray("Biomes", biomes);
+        level.put("Heightmaps", new CompoundTag());
+        level.put("Entities", new ListTag());
+        level.put("TileEntities", new ListTag());
+
+        var sections = new ListTag();
+
+        for (int sy = 0; sy < blocks.length / 4096; sy++) {
+            var palette = new IdentityHashMap<CompoundTag, Integer>();
+            var paletteTag = new ListTag();
+            var ids = new int[4096];
+
+            for (int i = 0; i < 4096; i++) {
+                var tag = blocks[sy * 4096 + i];
+                ids[i] = palette.computeIfAbsent(tag, k -> {
+                    paletteTag.add(k);
+                    return palette.size();
+                });
+            }
+            if (palette.size() == 1 && isAir(paletteTag.getCompound(0))) continue;
+
+            var sect = new CompoundTag();
+            sect.putByte("Y", (byte)((minY >> 4) + sy));
+            sect.put("Palette", paletteTag);
+            sect.putLongArray("BlockStates", packBlockStates(ids, palette.size()));
+            sections.add(sect);
+        }
+        level.put("Sections", sections);
+
+        var root = new CompoundTag();
+        root.putInt("DataVersion", SharedConstants.getCurrentVersion().getWorldVersion());
+        root.put("Level", level);
+        return root;
+    }
+
+    private static boolean isAir(CompoundTag state)
+    {
+        return state.getString("Name").equals("minecraft:air") && !state.contains("Properties");
+    }
+
+    //1.16+ layout: entries don't span across longs
+    private static long[] packBlockStates(int[] ids, int paletteSize)
+    {
+        int bits = Math.max(4, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+        int perLong = 64 / bits;
+        var data = new long[(ids.length + perLong - 1) / perLong];
+
+        for (int i = 0; i < ids.length; i++) {
+            data[i / perLong] |= (long)ids[i] << ((i % perLong) * bits);
+        }
+        return data;
+    }
+
+    private static List<BlockState> getBuildStates()
+    {
+        var materials = Set.of(Material.WOOD, Material.STONE, Material.GLASS, Material.WOOL, Material.METAL, Material.BUILDABLE_GLASS);
+        var states = new ArrayList<BlockState>();
+
+        for (Block block : Registry.BLOCK) {
+            if (block instanceof EntityBlock) continue; //no tile entities
+
+            for (BlockState state : block.getStateDefinition().getPossibleStates()) {
+                if (materials.contains(state.getMaterial())) {
+                    states.add(state);
+                }
+            }
+        }
+        return states;
+    }
+
+    private static List<CompoundTag> createModdedStates(int numBlocks, Random random)
+    {
+        var states = new ArrayList<CompoundTag>();
+
+        for (int i = 0; i < numBlocks; i++) {
+            int numVariants = 1 << random.nextInt(5);
+
+            for (int v = 0; v < numVariants; v++) {
+                var tag = new CompoundTag();
+                tag.putString("Name", "corpusmod:block_" + i);
+                if (numVariants > 1) {
+                    var props = new CompoundTag();
+                    props.putString("variant", Integer.toString(v));
+                    tag.put("Properties", props);
+                }
+                states.add(tag);
+            }
+        }
+        return states;
+    }
+
+    /** Writes a region file with zlib compressed chunks and zeroed timestamps. */
+    public static void writeRegion(Path path, CompoundTag[] chunks) throws IOException
+    {
+        var locations = new int[1024];
+        var body = new ByteArrayOutputStream();
+        int sector = 2; //after the location and timestamp tables
+
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] == null) continue;
+
+            var compressed = new ByteArrayOutputStream();
+            try (var out = new DataOutputStream(new DeflaterOutputStream(compressed))) {
+                NbtIo.write(chunks[i], out);
+            }
+            int length = compressed.size() + 1;
+            int numSectors = (length + 4 + 4095) / 4096;
+            if (numSectors > 255) {
+                throw new IllegalStateException("Chunk " + i + " is too large (" + length + " bytes)");
+            }
+            var header = new DataOutputStream(body);
+            header.writeInt(length);
+            header.writeByte(2); //zlib
+            compressed.writeTo(body);
+            body.write(new byte[numSectors * 4096 - length - 4]);
+
+            locations[i] = sector << 8 | numSectors;
+            sector += numSectors;
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            for (int loc : locations) {
+                out.writeInt(loc);
+            }
+            out.write(new byte[4096]); //timestamps
+            body.writeTo(out);
+        }
+    }
+}
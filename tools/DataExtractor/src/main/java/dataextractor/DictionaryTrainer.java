@@ -0,0 +1,251 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import net.minecraft.core.*;
+import net.minecraft.data.*;
+import net.minecraft.nbt.*;
+import net.minecraft.world.item.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.block.state.*;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Trains a raw content compression dictionary from the game's vocabularies, in their NBT form:
+ * block state palette entries, item stacks, entity and biome ids, and block entity default NBT.
+ * <p>
+ * The dictionary has no header, so it can be used as a prefix/raw dictionary by zstd, Brotli
+ * (shared dictionaries) and Deflate (preset dictionary, only the last 32KB are used).
+ * Segments are selected using the COVER algorithm from zstd: samples are split into epochs, and the
+ * segment with the most frequent (across samples) unseen d-mers is picked from each epoch.
+ * The best segments are placed at the end of the dictionary, where offsets are the shortest.
+ * <p>
+ * Outputs dictionary-&lt;worldVersion&gt;.bin, and dictionary-&lt;worldVersion&gt;.json with metadata
+ * and an evaluation using Deflate on held-out samples.
+ * <p>
+ * Options: --dict-size 32768
+ */
+class DictionaryTrainer
+{
+    private static final int DMER_SIZE = 8;
+    private static final int SEGMENT_SIZE = 64;
+    //every Nth sample is held out for evaluation
+    private static final int TEST_INTERVAL = 10;
+
+    public static void run(XData data, Args args) throws IOException
+    {
+        int dictSize = args.getInt("--dict-size", 32768);
+
+        var samples = collectSamples();
+        var training = new ArrayList<byte[]>();
+        var testing = new ArrayList<byte[]>();
+        for (int i = 0; i < samples.size(); i++) {
+            (i % TEST_INTERVAL == 0 ? testing : training).add(samples.get(i));
+        }
+        System.out.println("Training dictionary from " + training.size() + " samples...");
+        byte[] dict = train(training, dictSize);
+
+        var info = new XDictionary();
+        info.version = data.version;
+        info.worldVersion = data.worldVersion;
+        info.size = dict.length;
+        info.sha256 = sha256(dict);
+        //same as zstd, ids in [0, 32768) are reserved
+        info.id = (int)(Long.parseLong(info.sha256.substring(0, 8), 16) % ((1L << 31) - 32768)) + 32768;
+        info.numSamples = training.size();
+
+        info.testSamples = testing.size();
+        for (byte[] sample : testing) {
+            info.testRawBytes += sample.length;
+            info.testDeflateBytes += deflate(sample, null);
+            info.testDeflateDictBytes += deflate(sample, dict);
+        }
+
+        Files.write(Path.of("dictionary-" + data.worldVersion + ".bin"), dict);
+        JsonOutput.write(info, Path.of("dictionary-" + data.worldVersion + ".json"));
+
+        System.out.println("Dictionary " + info.id + ": held-out samples deflate to " +
+                           info.testDeflateDictBytes + " bytes, " + info.testDeflateBytes + " without dictionary");
+    }
+
+    private static List<byte[]> collectSamples() throws IOException
+    {
+        var tags = new ArrayList<CompoundTag>();
+
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            tags.add(NbtUtils.writeBlockState(state));
+        }
+        for (Item item : Registry.ITEM) {
+            tags.add(new ItemStack(item).save(new CompoundTag()));
+        }
+        for (var key : Registry.ENTITY_TYPE.keySet()) {
+            var tag = new CompoundTag();
+            tag.putString("id", key.toString());
+            tags.add(tag);
+        }
+        for (var key : BuiltinRegistries.BIOME.keySet()) {
+            var tag = new CompoundTag();
+            tag.putString("biome", key.toString());
+            tags.add(tag);
+        }
+        for (var def : BlockEntitySchemas.saveDefaults()) {
+            if (def.tag != null) {
+                tags.add(def.tag);
+            }
+        }
+
+        var samples = new ArrayList<byte[]>();
+        for (var tag : tags) {
+            var buf = new ByteArrayOutputStream();
+            NbtIo.write(tag, new DataOutputStream(buf));
+            samples.add(buf.toByteArray());
+        }
+        return samples;
+    }
+
+    public static byte[] train(List<byte[]> samples, int dictSize)
+    {
+        //number of samples containing each d-mer
+        var freqs = new HashMap<Long, Integer>();
+        int totalSize = 0;
+
+        for (byte[] sample : samples) {
+            var seen = new HashSet<Long>();
+            for (int i = 0; i + DMER_SIZE <= sample.length; i++) {
+                long dmer = getDmer(sample, i);
+                if (seen.add(dmer)) {
+                    freqs.merge(dmer, 1, Integer::sum);
+                }
+            }
+            totalSize += sample.length;
+        }
+        var data = new byte[totalSize];
+        int pos = 0;
+        for (byte[] sample : samples) {
+            System.arraycopy(sample, 0, data, pos, sample.length);
+            pos += sample.length;
+        }
+
+        int numEpochs = Math.max(1, Math.min(dictSize / SEGMENT_SIZE, totalSize / SEGMENT_SIZE));
+        int epochSize = totalSize / numEpochs;
+        var segments = new ArrayList<Segment>();
+
+        for (int e = 0; e < numEpochs; e++) {
+            int begin = e * epochSize;
+            int end = e + 1 == numEpochs ? totalSize : begin + epochSize;
+            var seg = selectSegment(data, begin, end, freqs);
+            if (seg == null) continue;
+
+            segments.add(seg);
+            //don't count the same content twice
+            for (int i = seg.start; i + DMER_SIZE <= seg.start + SEGMENT_SIZE; i++) {
+                freqs.remove(getDmer(data, i));
+            }
+        }
+        segments.sort(Comparator.comparingLong((Segment s) -> s.score).thenComparingInt(s -> s.start));
+
+        var dict = new ByteArrayOutputStream();
+        for (var seg : segments) {
+            dict.write(data, seg.start, SEGMENT_SIZE);
+        }
+        byte[] bytes = dict.toByteArray();
+        return bytes.length > dictSize ? Arrays.copyOfRange(bytes, bytes.length - dictSize, bytes.length) : bytes;
+    }
+
+    //Finds the segment in [begin, end) with the highest sum of frequencies of its distinct d-mers.
+    private static Segment selectSegment(byte[] data, int begin, int end, Map<Long, Integer> freqs)
+    {
+        int dmersPerSegment = SEGMENT_SIZE - DMER_SIZE + 1;
+        var active = new HashMap<Long, Integer>();
+        long score = 0;
+        Segment best = null;
+
+        for (int i = begin; i + DMER_SIZE <= end; i++) {
+            long dmer = getDmer(data, i);
+            if (active.merge(dmer, 1, Integer::sum) == 1) {
+                score += freqs.getOrDefault(dmer, 0);
+            }
+            int first = i - dmersPerSegment + 1;
+            if (first > begin) {
+                long old = getDmer(data, first - 1);
+                if (active.merge(old, -1, Integer::sum) == 0) {
+                    active.remove(old);
+                    score -= freqs.getOrDefault(old, 0);
+                }
+            }
+            if (first >= begin && score > 0 && (best == null || score > best.score)) {
+                best = new Segment(first, score);
+            }
+        }
+        return best;
+    }
+
+    private static long getDmer(byte[] data, int pos)
+    {
+        long v = 0;
+        for (int i = 0; i < DMER_SIZE; i++) {
+            v |= (data[pos + i] & 0xFFL) << (i * 8);
+        }
+        return v;
+    }
+
+    private static int deflate(byte[] input, byte[] dict)
+    {
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        if (dict != null) {
+            deflater.setDictionary(dict);
+        }
+        deflater.setInput(input);
+        deflater.finish();
+
+        var buf = new byte[input.length + 64];
+        int size = 0;
+        while (!deflater.finished()) {
+            size += deflater.deflate(buf);
+        }
+        deflater.end();
+        return size;
+    }
+
+    private static String sha256(byte[] data)
+    {
+        try {
+            var md = MessageDigest.getInstance("SHA-256");
+            return String.format("%064x", new BigInteger(1, md.digest(data)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static class Segment
+    {
+        public final int start;
+        public final long score;
+
+        public Segment(int start, long score)
+        {
+            this.start = start;
+            this.score = score;
+        }
+    }
+
+    static class XDictionary
+    {
+        public String version;
+        public int worldVersion;
+        public int id;
+        public int size;
+        public String sha256;
+        public int numSamples;
+
+        public int testSamples;
+        public long testRawBytes;
+        public long testDeflateBytes;
+        public long testDeflateDictBytes;
+    }
+}
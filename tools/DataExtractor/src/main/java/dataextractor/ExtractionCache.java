@@ -0,0 +1,163 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import net.minecraft.server.*;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.net.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Keeps previous extractions in a cache directory, and diffs the current registry against the most recent older one.
+ * <p>
+ * Entries are keyed by world version and a hash of the extraction inputs: the game and extractor
+ * classes, the arguments, and legacy_blocks.json. The key is known before the game is bootstrapped,
+ * so on a cache hit blocks.json is restored from the cache and the extraction is skipped entirely.
+ * Only blocks.json is cached, so Main rejects --incremental together with other outputs (--binary, --shards, ...).
+ * <p>
+ * The diff is written to blocks_diff.json, with `records` ready to be appended to blocks_versioned.jsonc.
+ * <p>
+ * Options: --cache cache  --aliases block_aliases.jsonc
+ */
+class ExtractionCache
+{
+    private final Path cacheDir;
+    private final Path entryPath;
+    private final int worldVersion;
+    private final String aliasesPath;
+
+    public ExtractionCache(int worldVersion, Args args, List<Path> extraInputs) throws IOException
+    {
+        this.cacheDir = Path.of(args.get("--cache", "cache"));
+        this.aliasesPath = args.get("--aliases", null);
+        this.worldVersion = worldVersion;
+        this.entryPath = cacheDir.resolve(worldVersion + "-" + getInputKey(args, extraInputs).substring(0, 16) + ".json");
+    }
+
+    /** Copies the cached extraction for the current inputs into `blocksPath`, if there is one. */
+    public boolean restore(Path blocksPath) throws IOException
+    {
+        if (!Files.exists(entryPath)) {
+            return false;
+        }
+        System.out.println("Inputs are unchanged since the cached extraction " + entryPath.getFileName() + ", skipping extraction");
+        Files.copy(entryPath, blocksPath, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /** Adds the extraction at `blocksPath` to the cache. */
+    public void store(Path blocksPath) throws IOException
+    {
+        Files.createDirectories(cacheDir);
+        Files.copy(blocksPath, entryPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Diffs `blocksPath` against the newest cached extraction of an older or equal version, into blocks_diff.json. */
+    public void writeDiff(Path blocksPath) throws IOException
+    {
+        var prevPath = findPrevious();
+        if (prevPath == null) {
+            System.out.println("No previous extraction in " + cacheDir + ", nothing to diff");
+            return;
+        }
+        var aliases = aliasesPath != null ? RegistryMerger.readRenames(Path.of(aliasesPath)) : List.<RegistryMerger.Rename>of();
+        var diff = RegistryDiff.compute(
+            JsonOutput.read(prevPath).getAsJsonObject(),
+            JsonOutput.read(blocksPath).getAsJsonObject(),
+            aliases
+        );
+        JsonOutput.write(diff, Path.of("blocks_diff.json"));
+
+        System.out.println("Diff " + diff.fromVersion + " -> " + diff.toVersion + ": " +
+                           diff.blocksAdded.size() + " blocks added, " +
+                           diff.blocksRemoved.size() + " removed, " +
+                           diff.blocksChanged.size() + " changed, " +
+                           diff.shapesAdded + " shapes added, " +
+                           diff.shapesRemoved + " removed");
+        System.out.println("Tables to rebuild: " + (diff.isEmpty() ? "none" : String.join(", ", diff.tables)));
+    }
+
+    //SHA-256 of everything the output of Main depends on, other than the world version.
+    private static String getInputKey(Args args, List<Path> extraInputs) throws IOException
+    {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        //the game jar (mappings are applied to it, so they are covered too) and the extractor classes
+        hashPath(md, getCodeSource(Bootstrap.class));
+        hashPath(md, getCodeSource(Main.class));
+
+        for (var path : extraInputs) {
+            if (Files.exists(path)) {
+                hashPath(md, path);
+            }
+        }
+        md.update(args.toString().getBytes(StandardCharsets.UTF_8));
+        return String.format("%064x", new BigInteger(1, md.digest()));
+    }
+    private static Path getCodeSource(Class<?> clazz) throws IOException
+    {
+        try {
+            return Path.of(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException ex) {
+            throw new IOException(ex);
+        }
+    }
+    //Hashes a file, or all files in a directory (e.g. build/classes) in a stable order.
+    private static void hashPath(MessageDigest md, Path path) throws IOException
+    {
+        if (!Files.isDirectory(path)) {
+            md.update(Files.readAllBytes(path));
+            return;
+        }
+        List<Path> files;
+        try (var stream = Files.walk(path)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (var file : files) {
+            md.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            md.update(Files.readAllBytes(file));
+        }
+    }
+
+    //Returns the newest entry for an older or equal world version, other than the current one.
+    private Path findPrevious() throws IOException
+    {
+        if (!Files.isDirectory(cacheDir)) {
+            return null;
+        }
+        Path best = null;
+        int bestVersion = -1;
+        long bestTime = 0;
+
+        try (var files = Files.list(cacheDir)) {
+            for (var path : (Iterable<Path>)files::iterator) {
+                String name = path.getFileName().toString();
+                int sep = name.indexOf('-');
+                if (sep < 0 || !name.endsWith(".json") || path.equals(entryPath)) continue;
+
+                int version;
+                try {
+                    version = Integer.parseInt(name.substring(0, sep));
+                } catch (NumberFormatException ex) {
+                    continue;
+                }
+                long time = Files.getLastModifiedTime(path).toMillis();
+                if (version <= worldVersion && (version > bestVersion || (version == bestVersion && time > bestTime))) {
+                    best = path;
+                    bestVersion = version;
+                    bestTime = time;
+                }
+            }
+        }
+        return best;
+    }
+}
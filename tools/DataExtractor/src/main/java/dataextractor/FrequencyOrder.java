@@ -0,0 +1,57 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+
+import java.util.*;
+
+/**
+ * Reorders blocks by how often their states appear in generated chunks (see PriorExtractor.sample()),
+ * so that common states get small global ids and sit together in the state tables.
+ * <p>
+ * Names of each block are sorted by count, then blocks are sorted by the count of their most common name.
+ * States of a block keep their mixed-radix order (see XBlock.getStateIndex()), and ties keep the registry order.
+ */
+class FrequencyOrder
+{
+    /**
+     * Reorders `data.blocks` and their names, and rebuilds the state table.
+     * Returns the previous global id of each new global state id.
+     */
+    public static int[] apply(XData data, long[] counts)
+    {
+        //registry order global id of the first state of each name
+        var firstIds = new HashMap<String, Integer>();
+        var nameCounts = new HashMap<String, Long>();
+        int id = 0;
+        for (XBlock block : data.blocks) {
+            for (String name : block.names) {
+                long count = 0;
+                for (int i = 0; i < block.numStates; i++) {
+                    count += counts[id + i];
+                }
+                firstIds.put(name, id);
+                nameCounts.put(name, count);
+                id += block.numStates;
+            }
+        }
+
+        var byCount = Comparator.comparingLong((String name) -> -nameCounts.get(name));
+        for (XBlock block : data.blocks) {
+            block.names.sort(byCount);
+        }
+        data.blocks.sort(Comparator.comparing((XBlock block) -> block.names.get(0), byCount));
+
+        var order = new int[data.numBlockStates];
+        id = 0;
+        for (XBlock block : data.blocks) {
+            for (String name : block.names) {
+                int firstId = firstIds.get(name);
+                for (int i = 0; i < block.numStates; i++) {
+                    order[id++] = firstId + i;
+                }
+            }
+        }
+        data.stateTable = new XStateTable(data.blocks, data.numBlockStates, data.shapes);
+        return order;
+    }
+}
@@ -0,0 +1,195 @@
+package dataextractor;
+
+import com.google.gson.*;
+import com.google.gson.reflect.*;
+import com.google.gson.stream.*;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * Streams objects as pretty printed json straight into a file, writing arrays of primitives
+ * and strings inline - e.g. `"flags": [1, 2, 3]` instead of one element per line.
+ * Memory usage is bound by the largest inline array rather than the whole document.
+ */
+class JsonOutput
+{
+    private static final Gson gson = new GsonBuilder()
+        .disableHtmlEscaping()
+        .registerTypeAdapterFactory(new InlineArrayAdapterFactory())
+        .create();
+
+    public static void write(Object obj, Path path) throws IOException
+    {
+        write(obj, path, null);
+    }
+    /** Writes `obj` to `path`, preceded by the given comment lines. */
+    public static void write(Object obj, Path path, String comment) throws IOException
+    {
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             var out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+             var writer = new JsonWriter(out))
+        {
+            if (comment != null) {
+                for (String line : comment.split("\n")) {
+                    out.write("//" + line + "\n");
+                }
+            }
+            writer.setIndent("  ");
+            gson.toJson(obj, obj.getClass(), writer);
+        }
+    }
+
+    //toJsonTree() can't take the inline arrays from the adapter above, they are written as raw json
+    private static final Gson treeGson = new GsonBuilder().disableHtmlEscaping().create();
+
+    /** Converts `obj` into a json tree. */
+    public static JsonElement toTree(Object obj)
+    {
+        return treeGson.toJsonTree(obj);
+    }
+
+    /** Computes the SHA-256 of the compact json representation of `obj`, as a hex string. */
+    public static String digest(Object obj) throws IOException
+    {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        var stream = new DigestOutputStream(OutputStream.nullOutputStream(), md);
+        try (var writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))) {
+            gson.toJson(obj, obj.getClass(), writer);
+        }
+        return String.format("%064x", new BigInteger(1, md.digest()));
+    }
+
+    /** Converts a json tree into plain maps, lists and primitives, so it can be written with inline arrays. */
+    public static Object toPlain(JsonElement elem)
+    {
+        if (elem.isJsonObject()) {
+            var map = new LinkedHashMap<String, Object>();
+            for (var entry : elem.getAsJsonObject().entrySet()) {
+                map.put(entry.getKey(), toPlain(entry.getValue()));
+            }
+            return map;
+        }
+        if (elem.isJsonArray()) {
+            var list = new ArrayList<Object>();
+            for (var child : elem.getAsJsonArray()) {
+                list.add(toPlain(child));
+            }
+            return list;
+        }
+        if (elem.isJsonNull()) {
+            return null;
+        }
+        var prim = elem.getAsJsonPrimitive();
+        if (prim.isBoolean()) return prim.getAsBoolean();
+        if (prim.isString()) return prim.getAsString();
+
+        //LazilyParsedNumber has no adapter, convert it into a concrete type
+        String num = prim.getAsString();
+        return num.contains(".") || num.contains("e") || num.contains("E") ? (Number)Double.parseDouble(num) : (Number)Long.parseLong(num);
+    }
+
+    public static JsonElement read(Path path) throws IOException
+    {
+        try (var reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            reader.setLenient(true); //allow comments
+            return new JsonParser().parse(reader);
+        }
+    }
+
+    private static class InlineArrayAdapterFactory implements TypeAdapterFactory
+    {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            Class<?> rawType = type.getRawType();
+            if (!rawType.isArray() && !Collection.class.isAssignableFrom(rawType)) {
+                return null;
+            }
+            var delegate = gson.getDelegateAdapter(this, type);
+
+            return new TypeAdapter<T>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException
+                {
+                    String inlined = value == null ? null : tryInline(value);
+                    if (inlined != null) {
+                        out.jsonValue(inlined);
+                    } else {
+                        delegate.write(out, value);
+                    }
+                }
+                @Override
+                public T read(JsonReader in) throws IOException
+                {
+                    return delegate.read(in);
+                }
+            };
+        }
+
+        //Returns the compact json for arrays containing only numbers, booleans, strings or nulls; null otherwise.
+        private static String tryInline(Object arr)
+        {
+            var sb = new StringBuilder("[");
+
+            if (arr instanceof Collection<?> coll) {
+                for (Object elem : coll) {
+                    if (!append(sb, elem)) return null;
+                }
+            } else {
+                int len = Array.getLength(arr);
+                for (int i = 0; i < len; i++) {
+                    if (!append(sb, Array.get(arr, i))) return null;
+                }
+            }
+            return sb.append(']').toString();
+        }
+        private static boolean append(StringBuilder sb, Object value)
+        {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            if (value == null || value instanceof Number || value instanceof Boolean) {
+                sb.append(value);
+            } else if (value instanceof String str) {
+                appendString(sb, str);
+            } else {
+                return false;
+            }
+            return true;
+        }
+        private static void appendString(StringBuilder sb, String str)
+        {
+            sb.append('"');
+            for (int i = 0; i < str.length(); i++) {
+                char ch = str.charAt(i);
+                switch (ch) {
+                    case '"'  -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (ch < 0x20) {
+                            sb.append(String.format("\\u%04x", (int)ch));
+                        } else {
+                            sb.append(ch);
+                        }
+                    }
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
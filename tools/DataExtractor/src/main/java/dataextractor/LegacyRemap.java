@@ -0,0 +1,92 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import net.minecraft.*;
+import net.minecraft.core.*;
+import net.minecraft.nbt.*;
+import net.minecraft.util.datafix.*;
+import net.minecraft.util.datafix.fixes.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Maps pre-1.13 block states to the current registry, using the same
+ * flattening table and data fixers the game uses to upgrade old worlds.
+ * <p>
+ * BlockStateData falls back to the block's first state for undefined metadata values (and to air
+ * for undefined ids), so which `id << 4 | meta` pairs exist is taken from legacy_blocks.json instead,
+ * where LegacyDataExtractor sets the states that don't survive a getStateFromMeta()/getMetaFromState()
+ * round trip to null.
+ */
+class LegacyRemap
+{
+    //DataVersion of the states in BlockStateData
+    public static final int FLATTENING_VERSION = 1451;
+
+    /**
+     * Creates a table indexed by legacy `id << 4 | meta`, where each entry is `nameIndex << 16 | stateIndex`,
+     * or -1 if the legacy state doesn't exist. `nameIndex` is the index of the block name in
+     * the order they appear in the `blocks[].names` lists.
+     */
+    public static int[] create(List<XBlock> blocks, Path legacyBlocksPath) throws IOException
+    {
+        var valid = readValidStates(legacyBlocksPath);
+        var nameIds = new HashMap<String, Integer>();
+        for (XBlock block : blocks) {
+            for (String name : block.names) {
+                nameIds.put(name, nameIds.size());
+            }
+        }
+        var fixer = DataFixers.getDataFixer();
+        int currentVersion = SharedConstants.getCurrentVersion().getWorldVersion();
+
+        var table = new int[4096];
+        for (int i = 0; i < table.length; i++) {
+            if (!valid.get(i)) {
+                table[i] = -1;
+                continue;
+            }
+            var tag = BlockStateData.getTag(i);
+            var fixed = fixer.update(References.BLOCK_STATE, tag, FLATTENING_VERSION, currentVersion);
+            var state = NbtUtils.readBlockState((CompoundTag)fixed.getValue());
+
+            var name = XBlock.getName(Registry.BLOCK.getKey(state.getBlock()));
+            Integer nameId = nameIds.get(name);
+            if (nameId == null) {
+                throw new IllegalStateException("Unknown block " + name + " for legacy state " + i);
+            }
+            table[i] = nameId << 16 | XBlock.getStateIndex(state);
+        }
+        return table;
+    }
+
+    //Returns the set of defined legacy states, indexed by `id << 4 | meta`.
+    private static BitSet readValidStates(Path path) throws IOException
+    {
+        var valid = new BitSet(4096);
+        for (var jelem : JsonOutput.read(path).getAsJsonObject().getAsJsonArray("blocks")) {
+            var jblock = jelem.getAsJsonObject();
+            int id = jblock.get("id").getAsInt();
+            var jstates = jblock.getAsJsonObject("states").get("states");
+
+            if (!jstates.isJsonArray()) {
+                //deduplicated, all metas are the same defined state
+                valid.set(id << 4, (id + 1) << 4);
+                continue;
+            }
+            if (jstates.getAsJsonArray().size() == 0) {
+                //blocks without properties only have meta 0
+                valid.set(id << 4);
+                continue;
+            }
+            for (int m = 0; m < 16; m++) {
+                if (!jstates.getAsJsonArray().get(m).isJsonNull()) {
+                    valid.set(id << 4 | m);
+                }
+            }
+        }
+        return valid;
+    }
+}
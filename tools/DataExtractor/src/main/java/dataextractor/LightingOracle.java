@@ -0,0 +1,293 @@
+package dataextractor;
+
+import dataextractor.Main.Args;
+import net.minecraft.*;
+import net.minecraft.core.*;
+import net.minecraft.nbt.*;
+import net.minecraft.server.*;
+import net.minecraft.world.level.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.block.state.*;
+import net.minecraft.world.level.block.state.properties.*;
+import net.minecraft.world.level.chunk.*;
+import net.minecraft.world.level.dimension.*;
+import net.minecraft.world.level.lighting.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Lights chunks offline using the game's own light engine, and writes them as region files with the
+ * vanilla light arrays, to be used as a reference for the C# Lighter. Lighting is timed over multiple runs.
+ * <p>
+ * A ring of extra chunks is generated and lit around the area, so that the written chunks
+ * have all their neighbors, like in a normal world. Only the inner chunks are written.
+ * <p>
+ * Content kinds:
+ * <ul>
+ *   <li>terrain: overworld terrain from XWorldGen.</li>
+ *   <li>nether: nether terrain, mostly lit by lava.</li>
+ *   <li>synthetic: random caves, light sources, and blocks with partial opacity or special shapes.</li>
+ * </ul>
+ * Usage: LightingOracle [--out lighting] [--seed 1] [--size 8] [--iterations 5] [--mix terrain,nether,synthetic]
+ * <p>
+ * Outputs `&lt;out&gt;/&lt;kind&gt;/region/r.0.0.mca` and `&lt;out&gt;/lighting_timings.json`.
+ */
+public class LightingOracle
+{
+    private static final BlockState[] SYNTHETIC_BLOCKS = {
+        Blocks.STONE.defaultBlockState(),
+        Blocks.GLASS.defaultBlockState(),
+        Blocks.OAK_LEAVES.defaultBlockState(),
+        Blocks.WATER.defaultBlockState(),
+        Blocks.ICE.defaultBlockState(),
+        Blocks.OAK_SLAB.defaultBlockState(),
+        Blocks.OAK_SLAB.defaultBlockState().setValue(SlabBlock.TYPE, SlabType.TOP),
+        Blocks.STONE_STAIRS.defaultBlockState(),
+        Blocks.STONE_STAIRS.defaultBlockState().setValue(StairBlock.HALF, Half.TOP),
+        Blocks.SNOW.defaultBlockState(),
+        Blocks.COBWEB.defaultBlockState(),
+        Blocks.OAK_FENCE.defaultBlockState(),
+        Blocks.SOUL_SAND.defaultBlockState(),
+        Blocks.DIRT_PATH.defaultBlockState(),
+    };
+    private static final BlockState[] SYNTHETIC_LIGHTS = {
+        Blocks.GLOWSTONE.defaultBlockState(),
+        Blocks.TORCH.defaultBlockState(),
+        Blocks.LAVA.defaultBlockState(),
+        Blocks.SEA_LANTERN.defaultBlockState(),
+        Blocks.REDSTONE_TORCH.defaultBlockState(),
+        Blocks.SOUL_TORCH.defaultBlockState(),
+        Blocks.END_ROD.defaultBlockState(),
+    };
+
+    public static void main(String[] rawArgs) throws Throwable
+    {
+        var args = new Args(rawArgs);
+        var outDir = Path.of(args.get("--out", "lighting"));
+        long seed = Long.parseLong(args.get("--seed", "1"));
+        int size = args.getInt("--size", 8);
+        int iterations = args.getInt("--iterations", 5);
+        var kinds = args.get("--mix", "terrain,nether,synthetic").split(",");
+
+        if (size < 1 || size > 32) {
+            throw new IllegalArgumentException("--size must be between 1 and 32");
+        }
+
+        SharedConstants.tryDetectVersion();
+        System.out.println("Initializing Minecraft " + SharedConstants.getCurrentVersion().getName() + " registries...");
+        Bootstrap.bootStrap();
+
+        var timings = new XTimings();
+        timings.version = SharedConstants.getCurrentVersion().getName();
+        timings.worldVersion = SharedConstants.getCurrentVersion().getWorldVersion();
+        timings.seed = seed;
+
+        for (String kind : kinds) {
+            System.out.println("Generating " + kind + " chunks...");
+            var gen = new XWorldGen(kind.equals("nether") ? LevelStem.NETHER : LevelStem.OVERWORLD, seed);
+            var chunks = generate(gen, kind, seed, size);
+            //same as ServerLevel, the nether has no sky light
+            boolean hasSkyLight = gen.type.hasSkyLight();
+
+            var xtiming = new XKindTiming();
+            xtiming.kind = kind;
+            xtiming.numChunks = chunks.size();
+            xtiming.timesMs = new double[iterations];
+
+            LevelLightEngine engine = null;
+            for (int i = 0; i < iterations; i++) {
+                long startTime = System.nanoTime();
+                engine = light(chunks, hasSkyLight);
+                xtiming.timesMs[i] = (System.nanoTime() - startTime) / 1000000.0;
+            }
+            xtiming.minMs = Arrays.stream(xtiming.timesMs).min().orElse(0);
+            xtiming.avgMs = Arrays.stream(xtiming.timesMs).average().orElse(0);
+            timings.kinds.add(xtiming);
+
+            System.out.printf("Lit %d %s chunks in %.2fms (min of %d runs)\n", chunks.size(), kind, xtiming.minMs, iterations);
+
+            var regionDir = outDir.resolve(kind).resolve("region");
+            Files.createDirectories(regionDir);
+            CorpusGenerator.writeRegion(regionDir.resolve("r.0.0.mca"), createRegion(chunks, engine, hasSkyLight, size));
+        }
+        JsonOutput.write(timings, outDir.resolve("lighting_timings.json"));
+        System.out.println("Done");
+    }
+
+    //Returns chunks from -1 to `size` on both axes.
+    private static ChunkSet generate(XWorldGen gen, String kind, long seed, int size)
+    {
+        var chunks = new ChunkSet();
+
+        for (int z = -1; z <= size; z++) {
+            for (int x = -1; x <= size; x++) {
+                var chunk = switch (kind) {
+                    case "terrain", "nether" -> gen.generate(x, z);
+                    case "synthetic" -> generateSynthetic(gen, seed, x, z);
+                    default -> throw new IllegalArgumentException("Unknown content kind: " + kind);
+                };
+                chunks.put(chunk);
+            }
+        }
+        return chunks;
+    }
+
+    private static ProtoChunk generateSynthetic(XWorldGen gen, long seed, int chunkX, int chunkZ)
+    {
+        var chunk = gen.generate(chunkX, chunkZ);
+        var random = new Random(seed ^ (chunkX * 341873128712L + chunkZ * 132897987541L));
+        var pos = new BlockPos.MutableBlockPos();
+        int minX = chunk.getPos().getMinBlockX();
+        int minZ = chunk.getPos().getMinBlockZ();
+
+        for (int y = chunk.getMinBuildHeight() + 1; y < chunk.getMinBuildHeight() + 128; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    pos.set(minX + x, y, minZ + z);
+                    int r = random.nextInt(100);
+
+                    BlockState state;
+                    if (r < 30) {
+                        state = Blocks.AIR.defaultBlockState();
+                    } else if (r < 32) {
+                        state = SYNTHETIC_LIGHTS[random.nextInt(SYNTHETIC_LIGHTS.length)];
+                    } else if (r < 50) {
+                        state = SYNTHETIC_BLOCKS[random.nextInt(SYNTHETIC_BLOCKS.length)];
+                    } else {
+                        continue;
+                    }
+                    chunk.setBlockState(pos, state, false);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    //Same steps as ThreadedLevelLightEngine.lightChunk()
+    private static LevelLightEngine light(ChunkSet chunks, boolean hasSkyLight)
+    {
+        var engine = new LevelLightEngine(chunks, true, hasSkyLight);
+
+        for (var chunk : chunks.chunks.values()) {
+            var chunkPos = chunk.getPos();
+            engine.retainData(chunkPos, true);
+
+            var sections = chunk.getSections();
+            for (int i = 0; i < sections.length; i++) {
+                if (!LevelChunkSection.isEmpty(sections[i])) {
+                    engine.updateSectionStatus(SectionPos.of(chunkPos, chunk.getSectionYFromSectionIndex(i)), false);
+                }
+            }
+            engine.enableLightSources(chunkPos, true);
+            chunk.getLights().forEach(pos -> engine.onBlockEmissionIncrease(pos, chunk.getLightEmission(pos)));
+        }
+        engine.runUpdates(Integer.MAX_VALUE, true, true);
+        return engine;
+    }
+
+    private static CompoundTag[] createRegion(ChunkSet chunks, LevelLightEngine engine, boolean hasSkyLight, int size)
+    {
+        var stateTags = new IdentityHashMap<BlockState, CompoundTag>();
+        var region = new CompoundTag[32 * 32];
+
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                var chunk = chunks.get(x, z);
+                int minY = chunk.getMinBuildHeight();
+                var blocks = new CompoundTag[chunk.getHeight() * 256];
+
+                XWorldGen.forEachBlock(chunk, (bx, by, bz, state) -> {
+                    blocks[(by - minY) * 256 + bz * 16 + bx] = stateTags.computeIfAbsent(state, NbtUtils::writeBlockState);
+                });
+                var tag = CorpusGenerator.createChunkTag(x, z, minY, blocks, chunk.getBiomes().writeBiomes());
+                addLight(tag.getCompound("Level"), engine, hasSkyLight, chunk.getPos());
+                region[z * 32 + x] = tag;
+            }
+        }
+        return region;
+    }
+
+    //Adds BlockLight and SkyLight to sections, creating light-only sections as needed.
+    //Like ChunkSerializer, SkyLight is only written if the dimension has sky light.
+    private static void addLight(CompoundTag level, LevelLightEngine engine, boolean hasSkyLight, ChunkPos chunkPos)
+    {
+        var sections = level.getList("Sections", Tag.TAG_COMPOUND);
+        var sectionsByY = new TreeMap<Integer, CompoundTag>();
+        for (int i = 0; i < sections.size(); i++) {
+            var sect = sections.getCompound(i);
+            sectionsByY.put((int)sect.getByte("Y"), sect);
+        }
+
+        for (int y = engine.getMinLightSection(); y < engine.getMaxLightSection(); y++) {
+            var sectPos = SectionPos.of(chunkPos, y);
+            var blockLight = engine.getLayerListener(LightLayer.BLOCK).getDataLayerData(sectPos);
+            var skyLight = hasSkyLight ? engine.getLayerListener(LightLayer.SKY).getDataLayerData(sectPos) : null;
+            if (blockLight == null && skyLight == null) continue;
+
+            int sectY = y;
+            var sect = sectionsByY.computeIfAbsent(y, k -> {
+                var tag = new CompoundTag();
+                tag.putByte("Y", (byte)sectY);
+                return tag;
+            });
+            if (blockLight != null && !blockLight.isEmpty()) {
+                sect.putByteArray("BlockLight", blockLight.getData());
+            }
+            if (skyLight != null && !skyLight.isEmpty()) {
+                sect.putByteArray("SkyLight", skyLight.getData());
+            }
+        }
+        var newSections = new ListTag();
+        newSections.addAll(sectionsByY.values());
+        level.put("Sections", newSections);
+        level.putBoolean("isLightOn", true);
+    }
+
+    private static class ChunkSet implements LightChunkGetter
+    {
+        public final Map<Long, ProtoChunk> chunks = new LinkedHashMap<>();
+
+        public void put(ProtoChunk chunk)
+        {
+            chunks.put(chunk.getPos().toLong(), chunk);
+        }
+        public ProtoChunk get(int x, int z)
+        {
+            return chunks.get(ChunkPos.asLong(x, z));
+        }
+        public int size()
+        {
+            return chunks.size();
+        }
+
+        @Override
+        public BlockGetter getChunkForLighting(int x, int z)
+        {
+            return get(x, z);
+        }
+        @Override
+        public BlockGetter getLevel()
+        {
+            //only used for the height range
+            return chunks.values().iterator().next();
+        }
+    }
+
+    static class XTimings
+    {
+        public String version;
+        public int worldVersion;
+        public long seed;
+        public List<XKindTiming> kinds = new ArrayList<>();
+    }
+    static class XKindTiming
+    {
+        public String kind;
+        //including the border chunks
+        public int numChunks;
+        public double[] timesMs;
+        public double minMs, avgMs;
+    }
+}
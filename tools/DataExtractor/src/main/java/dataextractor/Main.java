@@ -2,7 +2,6 @@ package dataextractor;
 
 import com.google.common.base.*;
 import com.google.common.collect.*;
-import com.google.common.io.*;
 import com.google.gson.*;
 import com.mojang.bridge.game.*;
 import net.minecraft.*;
@@ -13,38 +12,144 @@ import net.minecraft.world.level.*;
 import net.minecraft.world.level.block.*;
 import net.minecraft.world.level.block.state.*;
 import net.minecraft.world.level.block.state.properties.*;
+import net.minecraft.world.level.levelgen.Heightmap;
 import net.minecraft.world.level.material.*;
 import net.minecraft.world.phys.*;
 import net.minecraft.world.phys.shapes.*;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.Objects;
-import java.util.regex.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.*;
 
 public class Main
 {
-    private static XData data = new XData();
-    
-    public static void main(String[] args) throws Throwable
+    //1.17, the extractor uses blocks, materials and level APIs that don't exist in older versions
+    public static final int MIN_WORLD_VERSION = 2724;
+
+    public static void main(String[] rawArgs) throws Throwable
     {
+        var args = new Args(rawArgs);
+
         SharedConstants.tryDetectVersion();
         GameVersion version = SharedConstants.getCurrentVersion();
+        if (version.getWorldVersion() < MIN_WORLD_VERSION) {
+            throw new UnsupportedOperationException("Minecraft " + version.getName() + " is not supported, the extractor requires 1.17 or newer");
+        }
+        var blocksPath = Path.of("blocks.json");
+        var legacyBlocksPath = Path.of(args.get("--legacy-blocks", "../../src/AnvilPacker/Resources/legacy_blocks.json"));
+
+        ExtractionCache cache = null;
+        if (args.has("--incremental")) {
+            //only blocks.json is cached, other outputs would be skipped on a cache hit
+            var otherOutputs = Stream.of("--shards", "--binary", "--block-entities", "--dictionary", "--predictions", "--upgrades", "--priors")
+                                     .filter(args::has)
+                                     .collect(Collectors.toList());
+            if (!otherOutputs.isEmpty()) {
+                throw new IllegalArgumentException("--incremental can't be combined with " + String.join(", ", otherOutputs));
+            }
+            cache = new ExtractionCache(version.getWorldVersion(), args, List.of(legacyBlocksPath));
+            if (cache.restore(blocksPath)) {
+                cache.writeDiff(blocksPath);
+                System.out.println("Done");
+                return;
+            }
+        }
+
         System.out.println("Initializing Minecraft " + version.getName() + " registries...");
         Bootstrap.bootStrap();
 
         System.out.println("Extracting data...");
 
+        var entries = ImmutableList.copyOf(Registry.BLOCK)
+            .stream()
+            .map(block -> Map.entry(Registry.BLOCK.getKey(block), block))
+            .collect(Collectors.toList());
+
+        var data = extract(entries);
         data.version = version.getName();
         data.worldVersion = version.getWorldVersion();
-        data.numBlockStates = 0;
+        PriorExtractor.BlockStats blockStats = null;
+        if (args.has("--frequency-order")) {
+            blockStats = PriorExtractor.sample(data, PriorExtractor.parseSeeds(args), args.getInt("--chunk-radius", 4));
+            data.stateOrder = FrequencyOrder.apply(data, blockStats.counts);
+            //reused by --priors, which needs the new global ids
+            blockStats = blockStats.reorder(data.stateOrder);
+        }
+        if (Files.exists(legacyBlocksPath)) {
+            data.legacyRemap = LegacyRemap.create(data.blocks, legacyBlocksPath);
+        } else {
+            System.out.println("Skipping legacyRemap, " + legacyBlocksPath + " was not found (set it with --legacy-blocks)");
+        }
+        data.stateKeyHash = StateKeyHash.create(data.blocks);
 
-        var blocks = new LinkedHashMap<XBlock, XBlock>();
+        for (XBlock block : data.blocks) {
+            block.digest = block.computeDigest(data.shapes);
+        }
+        data.digest = JsonOutput.digest(data);
         
-        for (Block block : Registry.BLOCK) {
-            ResourceLocation key = Registry.BLOCK.getKey(block);
-            var xblock = new XBlock(key, block, data);
+        JsonOutput.write(data, blocksPath);
+
+        if (args.has("--shards")) {
+            ShardedOutput.write(data, Path.of("blocks"));
+        }
+        if (cache != null) {
+            cache.store(blocksPath);
+            cache.writeDiff(blocksPath);
+        }
+        if (args.has("--binary")) {
+            BinaryRegistryWriter.write(data, Path.of("blocks.bin"));
+        }
+        if (args.has("--block-entities")) {
+            BlockEntitySchemas.run(data);
+        }
+        if (args.has("--dictionary")) {
+            DictionaryTrainer.run(data, args);
+        }
+        if (args.has("--predictions")) {
+            NeighborPredictions.run(data);
+        }
+        if (args.has("--upgrades")) {
+            UpgradeTables.run(data, args);
+        }
+        if (args.has("--priors")) {
+            PriorExtractor.run(data, args, blockStats);
+        }
+
+        System.out.println("Done");
+    }
+
+    /** Extracts blocks, shapes and state tables from the given registry entries, in order. */
+    static XData extract(List<Map.Entry<ResourceLocation, Block>> entries)
+    {
+        return extract(entries, true);
+    }
+    /**
+     * Extracts blocks, shapes and state tables from the given registry entries, in order.
+     * If `mergeDuplicates` is false, blocks with identical definitions are kept as separate entries
+     * instead of sharing one entry with multiple names.
+     */
+    static XData extract(List<Map.Entry<ResourceLocation, Block>> entries, boolean mergeDuplicates)
+    {
+        var data = new XData();
+        var blocks = new LinkedHashMap<XBlock, XBlock>();
+
+        //Blocks are extracted in parallel, then shape ids are assigned and duplicates merged
+        //sequentially in registry order, so that the output doesn't depend on scheduling.
+        var xblocks = entries.parallelStream()
+            .map(entry -> new XBlock(entry.getKey(), entry.getValue()))
+            .collect(Collectors.toList());
+
+        for (var xblock : xblocks) {
+            xblock.states.assignShapeIds(data);
+            xblock.states = data.statesCache.computeIfAbsent(xblock.states, k -> k);
+            if (!mergeDuplicates) {
+                data.blocks.add(xblock);
+                data.numBlockStates += xblock.numStates;
+                continue;
+            }
             blocks.compute(xblock, (k, prev) -> {
                 if (prev == null) return k;
                 prev.names.add(xblock.names.get(0));
@@ -53,48 +158,51 @@ public class Main
             data.numBlockStates += xblock.numStates;
         }
 
-        data.shapes = data.shapeCache.keySet().stream().map(boxes -> {
-            return boxes.stream().flatMapToInt(bb -> {
-                return IntStream.of(
-                    (int)Math.round(bb.minX * 16), 
-                    (int)Math.round(bb.minY * 16), 
-                    (int)Math.round(bb.minZ * 16),
-                    (int)Math.round(bb.maxX * 16), 
-                    (int)Math.round(bb.maxY * 16), 
-                    (int)Math.round(bb.maxZ * 16)
-                );
-            }).toArray();
-        }).collect(Collectors.toList());
+        data.shapes = data.shapeList.stream()
+                          .map(ShapeMasks::getBoxes)
+                          .collect(Collectors.toList());
 
-        data.blocks.addAll(blocks.keySet());
-        
-        var gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .disableHtmlEscaping()
-            .create();
-        String json = gson.toJson(data);
-        
-        //Note: this shitty regex will crash the shitty java regex engine with a stackoverflow.
-        //Launch with -Xss64m as an workaround
-        //int arrays \[\s*(?:-?\d+\s*,\s*)*\s*-?\d+\s*\]
-        json = minify(json, "\\[\\s*(?:-?\\d+\\s*,\\s*)*\\s*-?\\d+\\s*\\]");
-        //string arrays \[\s*(?:\"[A-Za-z0-9 ,_\-:$]*\"\s*,\s*)*\s*\"[A-Za-z0-9 ,_\-:$]*\"\s*\]
-        json = minify(json, "\\[\\s*(?:\\\"[A-Za-z0-9 ,_\\-:$]*\\\"\\s*,\\s*)*\\s*\\\"[A-Za-z0-9 ,_\\-:$]*\\\"\\s*\\]");
+        data.shapeVoxels = data.shapeList.stream()
+                               .map(shape -> ShapeMasks.getVoxels(ShapeMasks.getBoxes(shape)))
+                               .collect(Collectors.toList());
 
-        Files.write(json, new File("blocks.json"), Charsets.UTF_8);
+        data.shapeFaces = data.shapeList.stream()
+                              .map(ShapeMasks::getFaceMasks)
+                              .collect(Collectors.toList());
 
-        System.out.println("Done");
+        data.blocks.addAll(blocks.keySet());
+        data.stateTable = new XStateTable(data.blocks, data.numBlockStates, data.shapes);
+        return data;
     }
 
-    static String minify(String json, String regex)
+    static class Args
     {
-        var pattern = Pattern.compile(regex);
-        var matcher = pattern.matcher(json);
-        return matcher.replaceAll(m -> {
-            String s = m.group(0);
-            s = s.replaceAll("[\\r\\n\\s]+", "").replace(",", ", ");
-            return Matcher.quoteReplacement(s);
-        });
+        private final List<String> args;
+
+        public Args(String[] args)
+        {
+            this.args = Arrays.asList(args);
+        }
+
+        public boolean has(String name)
+        {
+            return args.contains(name);
+        }
+        public String get(String name, String defaultValue)
+        {
+            int index = args.indexOf(name);
+            return index >= 0 && index + 1 < args.size() ? args.get(index + 1) : defaultValue;
+        }
+        public int getInt(String name, int defaultValue)
+        {
+            return Integer.parseInt(get(name, Integer.toString(defaultValue)));
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.join(" ", args);
+        }
     }
 
     static class XData
@@ -102,17 +210,41 @@ public class Main
         public String version;
         public int worldVersion;
         public int numBlockStates;
+        //SHA-256 of the registry contents, with this field unset
+        public String digest;
+
+        //Heightmap types, in the bit order of the `heightmaps` state attribute
+        public List<String> heightmapTypes = Arrays.stream(Heightmap.Types.values())
+                                                   .map(Heightmap.Types::getSerializationKey)
+                                                   .collect(Collectors.toList());
 
         public List<XBlock> blocks = new ArrayList<>();
         public Collection<XMaterial> materials = XMaterial.known.values();
 
-        public transient Map<List<AABB>, Integer> shapeCache = new LinkedHashMap<>();
+        //canonical shape key (see ShapeMasks.getCanonicalKey()) -> shape id
+        public transient Map<Object, Integer> shapeCache = new LinkedHashMap<>();
+        public transient List<VoxelShape> shapeList = new ArrayList<>();
+        //hash-consed state tables, identical tables are shared between blocks
+        public transient Map<XBlockStates, XBlockStates> statesCache = new HashMap<>();
         public List<int[]> shapes;
-
-        public int getShapeId(VoxelShape shape)
+        //16x16x16 occupancy bitmap of each shape, 64 longs (see ShapeMasks.getVoxels())
+        public List<long[]> shapeVoxels;
+        //Face coverage of each shape: 6 directions * 4 longs (see ShapeMasks.getFaceMasks())
+        public List<long[]> shapeFaces;
+        //Pre-flattening states, indexed by `id << 4 | meta` (see LegacyRemap)
+        public int[] legacyRemap;
+        public XStateTable stateTable;
+        //Registry order global id of each state, if blocks are sorted by frequency (see FrequencyOrder)
+        public int[] stateOrder;
+        //Perfect hash of "name[prop=value,...]" to global state ids
+        public StateKeyHash stateKeyHash;
+
+        public int getShapeId(VoxelShape shape, Object key)
         {
-            var bbs = shape.toAabbs();
-            return shapeCache.computeIfAbsent(bbs, k -> shapeCache.size());
+            return shapeCache.computeIfAbsent(key, k -> {
+                shapeList.add(shape);
+                return shapeCache.size();
+            });
         }
     }
     static class XBlock
@@ -123,14 +255,12 @@ public class Main
         public String material;
         public List<XBlockProperty> properties = new ArrayList<>();
         public XBlockStates states;
+        //SHA-256 of the block contents, with this field unset (see computeDigest())
+        public String digest;
 
-        public XBlock(ResourceLocation key, Block block, XData data)
+        public XBlock(ResourceLocation key, Block block)
         {
-            var name = key.getPath();
-            if (!key.getNamespace().equals("minecraft")) {
-                name = key.toString();
-            }
-            names.add(name);
+            names.add(getName(key));
 
             var stateDef = block.getStateDefinition();
             var sortedStates = ImmutableList.sortedCopyOf(
@@ -148,9 +278,43 @@ public class Main
                 properties.add(XBlockProperty.create(prop));
             }
 
-            material = XMaterial.known.computeIfAbsent(defaultState.getMaterial(), v -> {
+            //not using computeIfAbsent() because this may run concurrently
+            var xmaterial = XMaterial.known.get(defaultState.getMaterial());
+            if (xmaterial == null) {
                 throw new IllegalStateException("Unknown material for block " + key);
-            }).name;
+            }
+            material = xmaterial.name;
+        }
+
+        /** Returns a copy of this block with a different list of names. Other fields are shared. */
+        public XBlock withNames(List<String> names)
+        {
+            var copy = new XBlock();
+            copy.names = new ArrayList<>(names);
+            copy.numStates = numStates;
+            copy.defaultStateId = defaultStateId;
+            copy.material = material;
+            copy.properties = properties;
+            copy.states = states;
+            return copy;
+        }
+        private XBlock() { }
+
+        /**
+         * Computes the SHA-256 of the block contents, with shape ids replaced by their boxes
+         * (like RegistryMerger does), so that it doesn't depend on the order of the shape table.
+         */
+        public String computeDigest(List<int[]> shapes) throws IOException
+        {
+            var jblock = JsonOutput.toTree(this).getAsJsonObject();
+            var def = RegistryMerger.Snapshot.normalize(jblock, JsonOutput.toTree(shapes).getAsJsonArray());
+            def.add("names", jblock.get("names"));
+            return JsonOutput.digest(def);
+        }
+
+        public static String getName(ResourceLocation key)
+        {
+            return key.getNamespace().equals("minecraft") ? key.getPath() : key.toString();
         }
 
         public static int getStateIndex(BlockState state)
@@ -166,7 +330,7 @@ public class Main
             }
             return id;
         }
-        private static int getValueIndex(BlockState state, Property<?> prop)
+        static int getValueIndex(BlockState state, Property<?> prop)
         {
             int index = 0;
 
@@ -186,7 +350,7 @@ public class Main
         @Override
         public boolean equals(Object obj)
         {
-            return obj instanceof XBlock b && 
+            return obj == this || obj instanceof XBlock b && 
                    b.defaultStateId == defaultStateId &&
                    b.numStates == numStates && 
                    b.material.equals(material) &&
@@ -196,7 +360,7 @@ public class Main
         @Override
         public int hashCode()
         {
-            return properties.hashCode();
+            return Objects.hash(defaultStateId, numStates, material, properties, states);
         }
     }
     static class XBlockStates
@@ -204,25 +368,94 @@ public class Main
         public Object/* int|List<int> */ flags;
         public Object/* int|List<int> */ light;
         public Object/* int|List<int> */ occlusionShapes;
+        public Object/* int|List<int> */ sturdyFaces;
+        public Object/* int|List<int> */ heightmaps;
+
+        //non deduplicated values, used by the binary writer
+        public transient int[] rawFlags, rawLight, rawOcclusionShapes, rawSturdyFaces, rawHeightmaps;
 
         private static final BlockGetter emptyView = EmptyBlockGetter.INSTANCE;
         private static final BlockPos zeroPos = BlockPos.ZERO;
 
+        //shapes waiting for assignShapeIds()
+        private transient List<VoxelShape> pendingShapes = new ArrayList<>();
+        private transient List<Object> pendingShapeKeys = new ArrayList<>();
+
+        //Note: this is called concurrently for different blocks, it must not touch shared state.
         public XBlockStates(Block block, List<BlockState> states)
         {
             var flags = new ArrayList<Integer>();
             var light = new ArrayList<Integer>();
-            var occlusionShapes = new ArrayList<Integer>();
+            var sturdyFaces = new ArrayList<Integer>();
+            var heightmaps = new ArrayList<Integer>();
 
             for (BlockState state : states) {
                 flags.add(getFlags(state));
                 //emission << 4 | opacity
                 light.add(state.getLightEmission() << 4 | state.getLightBlock(emptyView, zeroPos));
-                occlusionShapes.add(data.getShapeId(state.getOcclusionShape(emptyView, zeroPos)));
+                sturdyFaces.add(getSturdyFaces(state));
+                heightmaps.add(getHeightmaps(state));
+
+                var shape = state.getOcclusionShape(emptyView, zeroPos).optimize();
+                pendingShapes.add(shape);
+                pendingShapeKeys.add(ShapeMasks.getCanonicalKey(shape));
             }
             this.flags = deduplicate(flags);
             this.light = deduplicate(light);
+            this.sturdyFaces = deduplicate(sturdyFaces);
+            this.heightmaps = deduplicate(heightmaps);
+
+            this.rawFlags = toArray(flags);
+            this.rawLight = toArray(light);
+            this.rawSturdyFaces = toArray(sturdyFaces);
+            this.rawHeightmaps = toArray(heightmaps);
+        }
+
+        public void assignShapeIds(XData data)
+        {
+            var occlusionShapes = new ArrayList<Integer>();
+            for (int i = 0; i < pendingShapes.size(); i++) {
+                occlusionShapes.add(data.getShapeId(pendingShapes.get(i), pendingShapeKeys.get(i)));
+            }
             this.occlusionShapes = deduplicate(occlusionShapes);
+            this.rawOcclusionShapes = toArray(occlusionShapes);
+
+            pendingShapes = null;
+            pendingShapeKeys = null;
+        }
+
+        //Bit `1 << Heightmap.Types.ordinal()` is set if the state counts as opaque for that heightmap.
+        private static int getHeightmaps(BlockState bs)
+        {
+            int mask = 0;
+            for (Heightmap.Types type : Heightmap.Types.values()) {
+                if (type.isOpaque().test(bs)) {
+                    mask |= 1 << type.ordinal();
+                }
+            }
+            return mask;
+        }
+
+        //Bit `1 << Direction.ordinal()` is set if the face is sturdy and fully
+        //covered by the occlusion shape, i.e. it hides the neighbor face behind it.
+        private int getSturdyFaces(BlockState bs)
+        {
+            if (!bs.canOcclude()) return 0;
+
+            int mask = 0;
+            for (Direction dir : Direction.values()) {
+                if (bs.isFaceSturdy(emptyView, zeroPos, dir) &&
+                    Block.isFaceFull(bs.getFaceOcclusionShape(emptyView, zeroPos, dir), dir))
+                {
+                    mask |= 1 << dir.ordinal();
+                }
+            }
+            return mask;
+        }
+
+        private static int[] toArray(List<Integer> arr)
+        {
+            return arr.stream().mapToInt(Integer::intValue).toArray();
         }
 
         private static Object deduplicate(List<Integer> arr)
@@ -267,15 +500,114 @@ public class Main
         @Override
         public boolean equals(Object obj)
         {
-            return obj instanceof XBlockStates o && 
+            return obj == this || obj instanceof XBlockStates o && 
                    o.flags.equals(flags) && 
                    o.light.equals(light) &&
-                   Objects.equals(o.occlusionShapes, occlusionShapes);
+                   Objects.equals(o.occlusionShapes, occlusionShapes) &&
+                   o.sturdyFaces.equals(sturdyFaces) &&
+                   o.heightmaps.equals(heightmaps);
         }
         @Override
         public int hashCode()
         {
-            return flags.hashCode();
+            return Objects.hash(flags, light, occlusionShapes, sturdyFaces, heightmaps);
+        }
+    }
+    /**
+     * Per-state attributes as flat columns, indexed by the global state id.
+     * Global ids are assigned sequentially over each name of each block, in the order
+     * they appear in the `blocks[].names` lists - the same order the runtime registry uses.
+     */
+    static class XStateTable
+    {
+        public int[] flags;
+        public int[] light;
+        public int[] occlusionShapes;
+        public int[] heightmaps;
+        //index of the block name (from `blocks[].names`) owning each state
+        public int[] blocks;
+
+        //States with the same [light, useShape, occlusionShape] light identically. Like Lighter's BlockLightInfo,
+        //useShape is only set if the state is both opaque and useShapeForLightOcclusion (flag bits 0 and 3),
+        //and the shape is set to the empty shape otherwise.
+        public int[] lightClasses;
+        public List<int[]> lightClassTable;
+        //States with the same [flags, light, occlusionShape, heightmaps] are interchangeable for all per-state attributes.
+        public int[] attribClasses;
+        public List<int[]> attribClassTable;
+
+        public XStateTable(List<XBlock> xblocks, int numStates, List<int[]> shapes)
+        {
+            flags = new int[numStates];
+            light = new int[numStates];
+            occlusionShapes = new int[numStates];
+            heightmaps = new int[numStates];
+            blocks = new int[numStates];
+
+            int id = 0, nameId = 0;
+            for (XBlock block : xblocks) {
+                var states = block.states;
+
+                for (int n = 0; n < block.names.size(); n++, nameId++) {
+                    for (int i = 0; i < block.numStates; i++, id++) {
+                        flags[id] = states.rawFlags[i];
+                        light[id] = states.rawLight[i];
+                        occlusionShapes[id] = states.rawOcclusionShapes[i];
+                        heightmaps[id] = states.rawHeightmaps[i];
+                        blocks[id] = nameId;
+                    }
+                }
+            }
+
+            int emptyShapeId = -1;
+            for (int i = 0; i < shapes.size(); i++) {
+                if (shapes.get(i).length == 0) {
+                    emptyShapeId = i;
+                    break;
+                }
+            }
+            lightClasses = new int[numStates];
+            attribClasses = new int[numStates];
+            var lightClassIds = new LinkedHashMap<List<Integer>, Integer>();
+            var attribClassIds = new LinkedHashMap<List<Integer>, Integer>();
+
+            for (int i = 0; i < numStates; i++) {
+                boolean useShape = (flags[i] & 0b1001) == 0b1001;
+                var lightKey = List.of(light[i], useShape ? 1 : 0, useShape ? occlusionShapes[i] : emptyShapeId);
+                var attribKey = List.of(flags[i], light[i], occlusionShapes[i], heightmaps[i]);
+
+                lightClasses[i] = lightClassIds.computeIfAbsent(lightKey, k -> lightClassIds.size());
+                attribClasses[i] = attribClassIds.computeIfAbsent(attribKey, k -> attribClassIds.size());
+            }
+            lightClassTable = toTable(lightClassIds.keySet());
+            attribClassTable = toTable(attribClassIds.keySet());
+        }
+
+        private static List<int[]> toTable(Collection<List<Integer>> keys)
+        {
+            return keys.stream()
+                       .map(k -> k.stream().mapToInt(Integer::intValue).toArray())
+                       .collect(Collectors.toList());
+        }
+
+        /** Creates a table mapping vanilla state ids (from Block.getId()) to global state ids. */
+        public static int[] createVanillaRemap(List<XBlock> xblocks)
+        {
+            var remap = new int[Block.BLOCK_STATE_REGISTRY.size()];
+            Arrays.fill(remap, -1);
+
+            int id = 0;
+            for (XBlock xblock : xblocks) {
+                for (String name : xblock.names) {
+                    var block = Registry.BLOCK.get(new ResourceLocation(name));
+
+                    for (BlockState state : block.getStateDefinition().getPossibleStates()) {
+                        remap[Block.getId(state)] = id + XBlock.getStateIndex(state);
+                    }
+                    id += xblock.numStates;
+                }
+            }
+            return remap;
         }
     }
     static class XMaterial
@@ -367,7 +699,7 @@ public class Main
         @Override
         public boolean equals(Object obj)
         {
-            return obj instanceof XBlockProperty o && 
+            return obj == this || obj instanceof XBlockProperty o && 
                    o.name.equals(name) && 
                    o.type.equals(type);
         }
@@ -377,15 +709,21 @@ public class Main
             return name.hashCode() * 31 + type.hashCode();
         }
 
+        //hash-consed properties, identical properties are shared between blocks
+        private static final Map<XBlockProperty, XBlockProperty> interned = new ConcurrentHashMap<>();
+
         public static XBlockProperty create(Property<?> prop)
         {
+            XBlockProperty xprop;
             if (prop instanceof BooleanProperty) {
-                return new XPropBool((BooleanProperty) prop);
+                xprop = new XPropBool((BooleanProperty) prop);
             } else if (prop instanceof IntegerProperty) {
-                return new XPropInt((IntegerProperty) prop);
+                xprop = new XPropInt((IntegerProperty) prop);
             } else {
-                return new XPropEnum((EnumProperty<?>) prop);
+                xprop = new XPropEnum((EnumProperty<?>) prop);
             }
+            var prev = interned.putIfAbsent(xprop, xprop);
+            return prev != null ? prev : xprop;
         }
 
         public static String getEnumName(Class<? extends Enum<?>> type)
@@ -421,6 +759,11 @@ public class Main
                        o.max == max &&
                        super.equals(obj);
             }
+            @Override
+            public int hashCode()
+            {
+                return Objects.hash(super.hashCode(), min, max);
+            }
         }
 
         public static class XPropBool extends XBlockProperty
@@ -465,6 +808,11 @@ public class Main
                        o.values.equals(values) &&
                        super.equals(obj);
             }
+            @Override
+            public int hashCode()
+            {
+                return Objects.hash(super.hashCode(), enumType, values);
+            }
         }
     }
 
@@ -0,0 +1,400 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import net.minecraft.*;
+import net.minecraft.commands.*;
+import net.minecraft.core.*;
+import net.minecraft.resources.*;
+import net.minecraft.server.*;
+import net.minecraft.server.packs.*;
+import net.minecraft.server.packs.repository.*;
+import net.minecraft.world.level.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.block.state.*;
+import net.minecraft.world.level.block.state.properties.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Finds block properties that are derived from neighbors by updateShape() (fence and wall connections,
+ * stair shapes, snowy grass, ...), and writes tables to predict them to block_predictions.json.
+ * <p>
+ * updateShape() is called with a mock level containing only the block and one neighbor, for every state
+ * as the neighbor in every direction. A property is predictable from direction `d` if the result only depends
+ * on the neighbor in `d`, and updates from the other directions never change it. These properties get a table
+ * mapping neighbor classes to value indices: `value = tables[t].values[neighborClasses[d][neighborStateId]]`.
+ * Properties that change with multiple directions (e.g. stair shapes) are listed in `dependsOn` only, they
+ * need more than one neighbor to be predicted.
+ * <p>
+ * Fence, wall and pane connections test BlockTags, so the vanilla data pack tags are bound before the analysis.
+ * <p>
+ * Direction indices are Direction.ordinal(): down, up, north, south, west, east. State ids are global (see XStateTable).
+ */
+class NeighborPredictions
+{
+    private static final BlockPos CENTER = new BlockPos(0, 64, 0);
+
+    public static void run(XData data) throws Exception
+    {
+        bindVanillaTags();
+
+        var states = getGlobalStates(data.blocks);
+        var dirs = Direction.values();
+
+        //per direction: table values over all neighbor states, deduplicated
+        var functions = new ArrayList<Map<IntArrayKey, Integer>>();
+        for (int i = 0; i < dirs.length; i++) {
+            functions.add(new LinkedHashMap<>());
+        }
+
+        var xblocks = new ArrayList<XPredictedBlock>();
+        var results = IntStream.range(0, data.blocks.size())
+                               .parallel()
+                               .mapToObj(i -> analyze(data.blocks.get(i), states))
+                               .collect(Collectors.toList());
+
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            if (result == null) continue;
+
+            var xblock = new XPredictedBlock();
+            xblock.block = i;
+            xblock.name = data.blocks.get(i).names.get(0);
+            xblock.error = result.error;
+
+            for (var prop : result.props) {
+                var xprop = new XPredictedProperty();
+                xprop.property = prop.name;
+                xprop.dependsOn = prop.dependsOn;
+                if (prop.values != null) {
+                    int dir = prop.dependsOn[0];
+                    var funcs = functions.get(dir);
+                    int funcId = funcs.computeIfAbsent(new IntArrayKey(prop.values), k -> funcs.size());
+                    //temporarily encoded as (dir, funcId), resolved to a table id below
+                    xprop.table = dir << 16 | funcId;
+                }
+                xblock.properties.add(xprop);
+            }
+            xblocks.add(xblock);
+        }
+
+        var output = new XNeighborPredictions();
+        output.version = data.version;
+        output.worldVersion = data.worldVersion;
+        output.blocks = xblocks;
+
+        //neighbor class = tuple of results over all functions of the direction
+        var tableIds = new HashMap<Integer, Integer>();
+        for (int d = 0; d < dirs.length; d++) {
+            var funcs = new ArrayList<>(functions.get(d).keySet());
+            var classes = new int[states.size()];
+            var classIds = new LinkedHashMap<IntArrayKey, Integer>();
+
+            for (int n = 0; n < states.size(); n++) {
+                var tuple = new int[funcs.size()];
+                for (int k = 0; k < funcs.size(); k++) {
+                    tuple[k] = funcs.get(k).values[n];
+                }
+                classes[n] = classIds.computeIfAbsent(new IntArrayKey(tuple), k -> classIds.size());
+            }
+            output.neighborClasses.add(classes);
+
+            var classTuples = new ArrayList<>(classIds.keySet());
+            for (int k = 0; k < funcs.size(); k++) {
+                var table = new XPredictionTable();
+                table.direction = d;
+                table.values = new int[classTuples.size()];
+                for (int c = 0; c < classTuples.size(); c++) {
+                    table.values[c] = classTuples.get(c).values[k];
+                }
+                tableIds.put(d << 16 | k, output.tables.size());
+                output.tables.add(table);
+            }
+        }
+        for (var xblock : xblocks) {
+            for (var xprop : xblock.properties) {
+                if (xprop.table != null) {
+                    xprop.table = tableIds.get(xprop.table);
+                }
+            }
+        }
+        JsonOutput.write(output, Path.of("block_predictions.json"));
+
+        System.out.println("Found " + xblocks.size() + " blocks with neighbor derived properties, " + output.tables.size() + " prediction tables");
+    }
+
+    //Returns null if updateShape() doesn't change properties of the block.
+    private static BlockResult analyze(XBlock xblock, List<BlockState> allStates)
+    {
+        var block = Registry.BLOCK.get(new ResourceLocation(xblock.names.get(0)));
+        var props = List.copyOf(block.getStateDefinition().getProperties());
+        if (props.isEmpty()) return null;
+
+        //default state, plus one with each property changed, so that every property varies
+        var samples = new ArrayList<BlockState>();
+        var defaultState = block.defaultBlockState();
+        samples.add(defaultState);
+        for (Property<?> prop : props) {
+            samples.add(defaultState.cycle(prop));
+        }
+
+        var level = new MockLevel();
+        var dirs = Direction.values();
+        try {
+            if (!changesProperties(samples, allStates, level)) return null;
+
+            //results[prop][dir][sample][neighbor] = value index after the update, or -1 if the block changed
+            var results = new int[props.size()][dirs.length][samples.size()][allStates.size()];
+            for (int d = 0; d < dirs.length; d++) {
+                for (int s = 0; s < samples.size(); s++) {
+                    for (int n = 0; n < allStates.size(); n++) {
+                        var updated = level.update(samples.get(s), dirs[d], allStates.get(n));
+
+                        for (int p = 0; p < props.size(); p++) {
+                            results[p][d][s][n] = updated.getBlock() == block ? XBlock.getValueIndex(updated, props.get(p)) : -1;
+                        }
+                    }
+                }
+            }
+
+            var result = new BlockResult();
+            for (int p = 0; p < props.size(); p++) {
+                var prop = analyzeProperty(props.get(p), results[p], samples);
+                if (prop != null) {
+                    result.props.add(prop);
+                }
+            }
+            return result.props.isEmpty() ? null : result;
+        } catch (RuntimeException ex) {
+            //updateShape() needs something the mock level doesn't provide
+            var result = new BlockResult();
+            result.error = ex.toString();
+            return result;
+        }
+    }
+
+    private static boolean changesProperties(List<BlockState> samples, List<BlockState> allStates, MockLevel level)
+    {
+        for (var state : samples) {
+            for (Direction dir : Direction.values()) {
+                //every neighbor is needed, some properties only change next to a few states (e.g. snowy grass)
+                for (int n = 0; n < allStates.size(); n++) {
+                    var updated = level.update(state, dir, allStates.get(n));
+                    if (updated != state && updated.getBlock() == state.getBlock()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static PropertyResult analyzeProperty(Property<?> prop, int[][][] results, List<BlockState> samples)
+    {
+        var changedDirs = new ArrayList<Integer>();
+        int[] values = null;
+
+        for (int d = 0; d < results.length; d++) {
+            boolean changes = false;
+            boolean independent = true;
+
+            for (int s = 0; s < samples.size(); s++) {
+                int orig = XBlock.getValueIndex(samples.get(s), prop);
+                for (int n = 0; n < results[d][s].length; n++) {
+                    int v = results[d][s][n];
+                    if (v >= 0 && v != orig) changes = true;
+                    if (v != results[d][0][n]) independent = false;
+                }
+            }
+            if (changes) {
+                changedDirs.add(d);
+                values = independent ? results[d][0] : null;
+            }
+        }
+        if (changedDirs.isEmpty()) return null;
+
+        var res = new PropertyResult();
+        res.name = prop.getName();
+        res.dependsOn = changedDirs.stream().mapToInt(Integer::intValue).toArray();
+        //only single direction properties are predicted by a table
+        if (changedDirs.size() == 1 && values != null && Arrays.stream(values).allMatch(v -> v >= 0)) {
+            res.values = values;
+        }
+        return res;
+    }
+
+    //Loads the vanilla data pack and binds its tags to BlockTags & co. Bootstrap alone leaves them unbound.
+    private static void bindVanillaTags() throws Exception
+    {
+        System.out.println("Loading vanilla data pack tags...");
+
+        var packs = new PackRepository(PackType.SERVER_DATA, new ServerPacksSource());
+        packs.reload();
+        packs.setSelected(List.of("vanilla"));
+
+        var resources = ServerResources.loadResources(
+            packs.openAllSelected(), RegistryAccess.builtin(),
+            Commands.CommandSelection.DEDICATED, 2,
+            Util.backgroundExecutor(), Runnable::run
+        ).get();
+        resources.updateGlobals();
+        resources.close();
+        packs.close();
+    }
+
+    //Returns the state of each global state id.
+    private static List<BlockState> getGlobalStates(List<XBlock> xblocks)
+    {
+        var states = new ArrayList<BlockState>();
+        for (XBlock xblock : xblocks) {
+            for (String name : xblock.names) {
+                var block = Registry.BLOCK.get(new ResourceLocation(name));
+                var blockStates = new BlockState[xblock.numStates];
+                for (BlockState state : block.getStateDefinition().getPossibleStates()) {
+                    blockStates[XBlock.getStateIndex(state)] = state;
+                }
+                states.addAll(Arrays.asList(blockStates));
+            }
+        }
+        return states;
+    }
+
+    /**
+     * A LevelAccessor containing a single block at CENTER and one neighbor, everything else is air.
+     * Default interface methods run normally, other methods return null/0/false or a no-op proxy.
+     */
+    private static class MockLevel implements InvocationHandler
+    {
+        private final LevelAccessor proxy = createProxy(LevelAccessor.class, this);
+        private BlockState center;
+        private BlockPos neighborPos;
+        private BlockState neighbor;
+
+        public BlockState update(BlockState state, Direction dir, BlockState neighborState)
+        {
+            center = state;
+            neighborPos = CENTER.relative(dir);
+            neighbor = neighborState;
+            return state.updateShape(dir, neighborState, proxy, CENTER, neighborPos);
+        }
+
+        private BlockState getBlockState(BlockPos pos)
+        {
+            if (pos.equals(CENTER)) return center;
+            if (pos.equals(neighborPos)) return neighbor;
+            return Blocks.AIR.defaultBlockState();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName()) {
+                case "getBlockState": return getBlockState((BlockPos)args[0]);
+                case "getFluidState": return getBlockState((BlockPos)args[0]).getFluidState();
+                case "getMinBuildHeight": return 0;
+                case "getHeight": return 256;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "MockLevel";
+            }
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            return getDefaultValue(method.getReturnType());
+        }
+
+        private static Object getDefaultValue(Class<?> type)
+        {
+            if (type == boolean.class) return false;
+            if (type == int.class) return 0;
+            if (type == long.class) return 0L;
+            if (type == float.class) return 0f;
+            if (type == double.class) return 0.0;
+            if (type == byte.class) return (byte)0;
+            if (type == short.class) return (short)0;
+            if (type == char.class) return '\0';
+            //e.g. tick lists for waterlogged blocks
+            if (type.isInterface()) {
+                return createProxy(type, (p, m, a) -> m.isDefault() ? InvocationHandler.invokeDefault(p, m, a) : getDefaultValue(m.getReturnType()));
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T createProxy(Class<T> type, InvocationHandler handler)
+        {
+            return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+        }
+    }
+
+    private static class BlockResult
+    {
+        public List<PropertyResult> props = new ArrayList<>();
+        public String error;
+    }
+    private static class PropertyResult
+    {
+        public String name;
+        public int[] dependsOn;
+        //value index for each neighbor state, if predictable from a single direction
+        public int[] values;
+    }
+    //int[] wrapper with value equality
+    private static class IntArrayKey
+    {
+        public final int[] values;
+        private final int hash;
+
+        public IntArrayKey(int[] values)
+        {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof IntArrayKey o && o.hash == hash && Arrays.equals(o.values, values);
+        }
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    static class XNeighborPredictions
+    {
+        public String version;
+        public int worldVersion;
+        public List<XPredictedBlock> blocks;
+        public List<XPredictionTable> tables = new ArrayList<>();
+        //per direction, class of each global state id when it is the neighbor in that direction
+        public List<int[]> neighborClasses = new ArrayList<>();
+    }
+    static class XPredictedBlock
+    {
+        //index in `blocks` of blocks.json
+        public int block;
+        public String name;
+        public List<XPredictedProperty> properties = new ArrayList<>();
+        public String error;
+    }
+    static class XPredictedProperty
+    {
+        public String property;
+        //directions whose neighbor can change this property
+        public int[] dependsOn;
+        //index in `tables`, absent if the value can't be predicted from a single neighbor
+        public Integer table;
+    }
+    static class XPredictionTable
+    {
+        public int direction;
+        //value index (in the property's possible values) for each neighbor class
+        public int[] values;
+    }
+}
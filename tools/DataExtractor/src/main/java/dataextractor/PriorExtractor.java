@@ -0,0 +1,206 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import net.minecraft.world.level.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.chunk.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Generates chunks from fixed seeds in all dimensions and gathers block state frequencies
+ * and neighbor co-occurrence counts, which can be used as initial priors by the block codecs.
+ * <p>
+ * Options: --seeds 1,2,3  --chunk-radius 4  --max-pairs 65536
+ */
+class PriorExtractor
+{
+    //Same as BlockCodecV1.DefaultNeighbors
+    public static final int[][] NEIGHBORS = {
+        { -1, 0, 0 },
+        { 0, -1, 0 },
+        { 0, 0, -1 },
+    };
+
+    /** Writes block_priors.json, from `stats` if the chunks were already sampled with the same options, or null. */
+    public static void run(XData data, Args args, BlockStats stats) throws IOException
+    {
+        long[] seeds = parseSeeds(args);
+        int radius = args.getInt("--chunk-radius", 4);
+        int maxPairs = args.getInt("--max-pairs", 65536);
+
+        var total = stats != null ? stats : sample(data, seeds, radius);
+        int numChunks = seeds.length * XWorldGen.DIMENSIONS.size() * (2 * radius) * (2 * radius);
+
+        var priors = new XPriors();
+        priors.version = data.version;
+        priors.worldVersion = data.worldVersion;
+        priors.registryDigest = data.digest;
+        priors.seeds = seeds;
+        priors.numChunks = numChunks;
+        priors.neighbors = Arrays.asList(NEIGHBORS);
+        priors.frequencies = total.getFrequencies();
+        priors.pairs = Arrays.stream(total.pairs)
+                             .map(p -> BlockStats.getTopPairs(p, maxPairs))
+                             .collect(Collectors.toList());
+
+        JsonOutput.write(priors, Path.of("block_priors.json"));
+    }
+
+    /** Generates chunks in [-radius, radius) of every dimension for each seed, and counts their blocks. */
+    public static BlockStats sample(XData data, long[] seeds, int radius)
+    {
+        var remap = XStateTable.createVanillaRemap(data.blocks);
+        var total = new BlockStats(data.numBlockStates);
+
+        for (long seed : seeds) {
+            for (var dim : XWorldGen.DIMENSIONS) {
+                var gen = new XWorldGen(dim, seed);
+                System.out.println("Sampling " + gen.getName() + " chunks for seed " + seed + "...");
+
+                var positions = new ArrayList<ChunkPos>();
+                for (int z = -radius; z < radius; z++) {
+                    for (int x = -radius; x < radius; x++) {
+                        positions.add(new ChunkPos(x, z));
+                    }
+                }
+                positions.parallelStream().forEach(pos -> {
+                    var stats = new BlockStats(data.numBlockStates);
+                    stats.add(gen.generate(pos.x, pos.z), remap);
+
+                    synchronized (total) {
+                        total.merge(stats);
+                    }
+                });
+            }
+        }
+        return total;
+    }
+
+    public static long[] parseSeeds(Args args)
+    {
+        return Arrays.stream(args.get("--seeds", "1,2,3").split(","))
+                     .mapToLong(Long::parseLong)
+                     .toArray();
+    }
+
+    static class XPriors
+    {
+        public String version;
+        public int worldVersion;
+        //digest of the blocks.json whose global state ids are used here
+        public String registryDigest;
+        public long[] seeds;
+        public int numChunks;
+
+        public List<int[]> neighbors;
+        //[stateId, count] pairs, sorted by count in descending order
+        public long[] frequencies;
+        //for each neighbor: [neighborStateId, stateId, count] triples, sorted by count in descending order
+        public List<long[]> pairs;
+    }
+
+    /** Block counts over global state ids. */
+    static class BlockStats
+    {
+        public final long[] counts;
+        //per neighbor, (neighborId << 32 | stateId) -> count
+        public final Map<Long, Long>[] pairs;
+
+        @SuppressWarnings("unchecked")
+        public BlockStats(int numStates)
+        {
+            counts = new long[numStates];
+            pairs = new Map[NEIGHBORS.length];
+            for (int i = 0; i < pairs.length; i++) {
+                pairs[i] = new HashMap<>();
+            }
+        }
+
+        public void add(ChunkAccess chunk, int[] remap)
+        {
+            int minY = chunk.getMinBuildHeight();
+            int height = chunk.getHeight();
+            var ids = new int[height * 256];
+
+            XWorldGen.forEachBlock(chunk, (x, y, z, state) -> {
+                ids[(y - minY) * 256 + z * 16 + x] = remap[Block.getId(state)];
+            });
+
+            for (int y = 0; y < height; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        int id = ids[y * 256 + z * 16 + x];
+                        counts[id]++;
+
+                        for (int i = 0; i < NEIGHBORS.length; i++) {
+                            int nx = x + NEIGHBORS[i][0];
+                            int ny = y + NEIGHBORS[i][1];
+                            int nz = z + NEIGHBORS[i][2];
+                            if (nx < 0 || ny < 0 || nz < 0) continue;
+
+                            long neighborId = ids[ny * 256 + nz * 16 + nx];
+                            pairs[i].merge(neighborId << 32 | id, 1L, Long::sum);
+                        }
+                    }
+                }
+            }
+        }
+
+        public void merge(BlockStats other)
+        {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            for (int i = 0; i < pairs.length; i++) {
+                for (var entry : other.pairs[i].entrySet()) {
+                    pairs[i].merge(entry.getKey(), entry.getValue(), Long::sum);
+                }
+            }
+        }
+
+        /** Returns these counts over new global ids, given the previous id of each new id (see FrequencyOrder.apply()). */
+        public BlockStats reorder(int[] prevIds)
+        {
+            var newIds = new int[prevIds.length];
+            for (int i = 0; i < prevIds.length; i++) {
+                newIds[prevIds[i]] = i;
+            }
+            var res = new BlockStats(counts.length);
+            for (int i = 0; i < counts.length; i++) {
+                res.counts[i] = counts[prevIds[i]];
+            }
+            for (int i = 0; i < pairs.length; i++) {
+                for (var entry : pairs[i].entrySet()) {
+                    long key = entry.getKey();
+                    long neighborId = newIds[(int)(key >>> 32)];
+                    res.pairs[i].put(neighborId << 32 | newIds[(int)key], entry.getValue());
+                }
+            }
+            return res;
+        }
+
+        public long[] getFrequencies()
+        {
+            return IntStream.range(0, counts.length)
+                            .filter(i -> counts[i] != 0)
+                            .boxed()
+                            .sorted(Comparator.comparingLong((Integer i) -> -counts[i]).thenComparingInt(i -> i))
+                            .flatMapToLong(i -> LongStream.of(i, counts[i]))
+                            .toArray();
+        }
+
+        public static long[] getTopPairs(Map<Long, Long> pairs, int maxPairs)
+        {
+            return pairs.entrySet()
+                        .stream()
+                        .sorted(Map.Entry.<Long, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                        .limit(maxPairs)
+                        .flatMapToLong(e -> LongStream.of(e.getKey() >>> 32, e.getKey() & 0xFFFFFFFFL, e.getValue()))
+                        .toArray();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package dataextractor;
+
+import com.google.gson.*;
+import dataextractor.RegistryMerger.*;
+
+import java.util.*;
+
+/**
+ * Structural diff between two extracted registries (blocks.json contents).
+ * Blocks are compared by name, with shapes compared by geometry rather than by id.
+ * Extractor-only state columns (heightmaps, sturdyFaces) are not compared, see RegistryMerger.Snapshot.
+ */
+class RegistryDiff
+{
+    public String fromVersion, toVersion;
+    public int fromWorldVersion, toWorldVersion;
+    public String fromDigest, toDigest;
+
+    public List<String> blocksAdded = new ArrayList<>();
+    public List<String> blocksRemoved = new ArrayList<>();
+    //block name -> changed fields, e.g. "material" or "states.flags"
+    public Map<String, List<String>> blocksChanged = new LinkedHashMap<>();
+    public int shapesAdded, shapesRemoved;
+    public List<String> materialsChanged = new ArrayList<>();
+    //Runtime tables affected by the changes, named after the blocks.json fields they are built from.
+    public Set<String> tables = new TreeSet<>();
+    //Records for blocks_versioned.jsonc, describing the definitions removed from `from`.
+    public Object records;
+
+    public static RegistryDiff compute(JsonObject older, JsonObject newer, Collection<Rename> renames)
+    {
+        var diff = new RegistryDiff();
+        diff.fromVersion = older.get("version").getAsString();
+        diff.toVersion = newer.get("version").getAsString();
+        diff.fromWorldVersion = older.get("worldVersion").getAsInt();
+        diff.toWorldVersion = newer.get("worldVersion").getAsInt();
+        diff.fromDigest = getString(older, "digest");
+        diff.toDigest = getString(newer, "digest");
+
+        var oldSnap = Snapshot.from(older);
+        var newSnap = Snapshot.from(newer);
+
+        for (var entry : oldSnap.blocks.entrySet()) {
+            var newDef = newSnap.blocks.get(entry.getKey());
+            if (newDef == null) {
+                diff.blocksRemoved.add(entry.getKey());
+                continue;
+            }
+            var fields = new ArrayList<String>();
+            diffFields(entry.getValue(), newDef, "", fields);
+            if (!fields.isEmpty()) {
+                diff.blocksChanged.put(entry.getKey(), fields);
+                for (String field : fields) {
+                    diff.tables.add(field.startsWith("states.") ? field.substring(7) : field);
+                }
+            }
+        }
+        for (String name : newSnap.blocks.keySet()) {
+            if (!oldSnap.blocks.containsKey(name)) {
+                diff.blocksAdded.add(name);
+            }
+        }
+        if (!diff.blocksAdded.isEmpty() || !diff.blocksRemoved.isEmpty()) {
+            //global state ids shift
+            diff.tables.add("blocks");
+            diff.tables.add("stateTable");
+        }
+
+        var oldShapes = toSet(older.getAsJsonArray("shapes"));
+        var newShapes = toSet(newer.getAsJsonArray("shapes"));
+        diff.shapesAdded = (int)newShapes.stream().filter(s -> !oldShapes.contains(s)).count();
+        diff.shapesRemoved = (int)oldShapes.stream().filter(s -> !newShapes.contains(s)).count();
+        if (diff.shapesAdded != 0 || diff.shapesRemoved != 0) {
+            diff.tables.add("shapes");
+        }
+
+        var oldMaterials = getMaterials(older);
+        var newMaterials = getMaterials(newer);
+        var materialNames = new LinkedHashSet<>(oldMaterials.keySet());
+        materialNames.addAll(newMaterials.keySet());
+        for (String name : materialNames) {
+            if (!Objects.equals(oldMaterials.get(name), newMaterials.get(name))) {
+                diff.materialsChanged.add(name);
+            }
+        }
+        if (!diff.materialsChanged.isEmpty()) {
+            diff.tables.add("materials");
+        }
+
+        var merger = new RegistryMerger();
+        merger.addRenames(renames);
+        merger.addTransition(oldSnap, newSnap);
+        diff.records = JsonOutput.toPlain(merger.toJson());
+
+        return diff;
+    }
+
+    public boolean isEmpty()
+    {
+        return blocksAdded.isEmpty() && blocksRemoved.isEmpty() && blocksChanged.isEmpty() &&
+               shapesAdded == 0 && shapesRemoved == 0 && materialsChanged.isEmpty();
+    }
+
+    private static void diffFields(JsonObject a, JsonObject b, String prefix, List<String> changed)
+    {
+        var keys = new LinkedHashSet<String>();
+        a.entrySet().forEach(e -> keys.add(e.getKey()));
+        b.entrySet().forEach(e -> keys.add(e.getKey()));
+
+        for (String key : keys) {
+            var va = a.get(key);
+            var vb = b.get(key);
+            if (Objects.equals(va, vb)) continue;
+
+            if (va != null && vb != null && va.isJsonObject() && vb.isJsonObject() && key.equals("states")) {
+                diffFields(va.getAsJsonObject(), vb.getAsJsonObject(), prefix + key + ".", changed);
+            } else {
+                changed.add(prefix + key);
+            }
+        }
+    }
+
+    private static Set<JsonElement> toSet(JsonArray arr)
+    {
+        var set = new HashSet<JsonElement>();
+        arr.forEach(set::add);
+        return set;
+    }
+    private static Map<String, JsonElement> getMaterials(JsonObject root)
+    {
+        var map = new LinkedHashMap<String, JsonElement>();
+        for (var jmat : root.getAsJsonArray("materials")) {
+            map.put(jmat.getAsJsonObject().get("name").getAsString(), jmat);
+        }
+        return map;
+    }
+    private static String getString(JsonObject obj, String name)
+    {
+        var elem = obj.get(name);
+        return elem == null || elem.isJsonNull() ? null : elem.getAsString();
+    }
+}
@@ -0,0 +1,236 @@
+package dataextractor;
+
+import com.google.gson.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Merges block registries extracted from different game versions into a versioned
+ * block table, in the same format as blocks_versioned.jsonc.
+ */
+class RegistryMerger
+{
+    //Fields that are not part of a block definition
+    private static final Set<String> IGNORED_FIELDS = Set.of("names", "digest");
+    //Extractor-only state columns, not part of the runtime definition. Heightmap bits are also
+    //Heightmap.Types ordinals, which change between versions.
+    private static final Set<String> IGNORED_STATE_FIELDS = Set.of("heightmaps", "sturdyFaces");
+
+    private final List<JsonArray> shapes = new ArrayList<>();
+    private final Map<JsonArray, Integer> shapeIds = new HashMap<>();
+    private final List<JsonObject> records = new ArrayList<>();
+    private final List<Rename> renames = new ArrayList<>();
+
+    /**
+     * Blocks that are renamed instead of changed, i.e. those in block_aliases.jsonc.
+     * The old name is only ignored in the transition that crosses the rename version.
+     */
+    public void addRenames(Collection<Rename> renames)
+    {
+        this.renames.addAll(renames);
+    }
+
+    /**
+     * Adds records for all blocks of `older` whose definition changed or was removed in `newer`.
+     * Snapshots must be added from the oldest to the newest version.
+     */
+    public void addTransition(Snapshot older, Snapshot newer)
+    {
+        var renamedNames = getRenamedNames(older, newer);
+        //group names sharing the same definition, in registry order
+        var changed = new LinkedHashMap<JsonObject, List<String>>();
+
+        for (var entry : older.blocks.entrySet()) {
+            String name = entry.getKey();
+            if (renamedNames.contains(name)) continue;
+
+            var def = entry.getValue();
+            if (!def.equals(newer.blocks.get(name))) {
+                changed.computeIfAbsent(def, k -> new ArrayList<>()).add(name);
+            }
+        }
+        for (var entry : changed.entrySet()) {
+            records.add(createRecord(newer.worldVersion, entry.getValue(), entry.getKey()));
+        }
+    }
+
+    //Returns the old names of the renames that happened between `older` and `newer`.
+    private Set<String> getRenamedNames(Snapshot older, Snapshot newer)
+    {
+        var names = new HashSet<String>();
+        for (var rename : renames) {
+            if (rename.version <= older.worldVersion || rename.version > newer.worldVersion) continue;
+            //not in the older version either (e.g. the block was added later than `older`), nothing to ignore
+            if (!older.blocks.containsKey(rename.oldName)) continue;
+            //the old name was reused by another block (e.g. stone_slab -> smooth_stone_slab in 1.14, which
+            //added a new stone_slab), its definition is compared like any other block
+            if (newer.blocks.containsKey(rename.oldName)) continue;
+
+            names.add(rename.oldName);
+        }
+        return names;
+    }
+
+    private JsonObject createRecord(int versionRemoved, List<String> names, JsonObject def)
+    {
+        var rec = new JsonObject();
+        rec.addProperty("version_removed", versionRemoved);
+
+        var jnames = new JsonArray();
+        names.forEach(jnames::add);
+        rec.add("names", jnames);
+
+        for (var entry : def.entrySet()) {
+            rec.add(entry.getKey(), entry.getValue());
+        }
+        //map shapes back into ids of the merged shape table
+        var states = copy(def.getAsJsonObject("states"));
+        rec.add("states", states);
+        var occlShapes = states.get("occlusionShapes");
+        if (occlShapes.isJsonObject()) {
+            states.add("occlusionShapes", new JsonPrimitive(getShapeId(occlShapes)));
+        } else {
+            var ids = new JsonArray();
+            for (var shape : occlShapes.getAsJsonArray()) {
+                ids.add(getShapeId(shape));
+            }
+            states.add("occlusionShapes", ids);
+        }
+        return rec;
+    }
+    private int getShapeId(JsonElement shape)
+    {
+        var boxes = shape.getAsJsonObject().getAsJsonArray("boxes");
+        return shapeIds.computeIfAbsent(boxes, k -> {
+            shapes.add(boxes);
+            return shapes.size() - 1;
+        });
+    }
+
+    public List<JsonObject> getRecords() { return records; }
+
+    private static JsonObject copy(JsonObject obj)
+    {
+        var res = new JsonObject();
+        for (var entry : obj.entrySet()) {
+            res.add(entry.getKey(), entry.getValue());
+        }
+        return res;
+    }
+
+    public JsonObject toJson()
+    {
+        var root = new JsonObject();
+        var jblocks = new JsonArray();
+        var jshapes = new JsonArray();
+        records.forEach(jblocks::add);
+        shapes.forEach(jshapes::add);
+        root.add("blocks", jblocks);
+        root.add("shapes", jshapes);
+        return root;
+    }
+
+    public void write(Path path) throws IOException
+    {
+        JsonOutput.write(JsonOutput.toPlain(toJson()), path,
+            "Block defs for older versions. Block structure is the same as in blocks.json,\n" +
+            "plus the version_removed field.\n" +
+            "Generated by dataextractor.VersionDriver, do not edit."
+        );
+    }
+
+    /** Reads the renamed blocks from block_aliases.jsonc */
+    public static List<Rename> readRenames(Path path) throws IOException
+    {
+        var renames = new ArrayList<Rename>();
+        for (var jelem : JsonOutput.read(path).getAsJsonArray()) {
+            var jobj = jelem.getAsJsonObject();
+            int version = jobj.get("version").getAsInt();
+
+            for (var entry : jobj.getAsJsonObject("renames").entrySet()) {
+                renames.add(new Rename(version, entry.getKey(), entry.getValue().getAsString()));
+            }
+        }
+        return renames;
+    }
+
+    /** A block_aliases.jsonc entry: `oldName` was renamed to `newName` in world version `version`. */
+    public static class Rename
+    {
+        public final int version;
+        public final String oldName, newName;
+
+        public Rename(int version, String oldName, String newName)
+        {
+            this.version = version;
+            this.oldName = oldName;
+            this.newName = newName;
+        }
+    }
+
+    /** Block definitions from a blocks.json file, keyed by name. */
+    public static class Snapshot
+    {
+        public String version;
+        public int worldVersion;
+        public final Map<String, JsonObject> blocks = new LinkedHashMap<>();
+
+        public static Snapshot load(Path path) throws IOException
+        {
+            return from(JsonOutput.read(path).getAsJsonObject());
+        }
+        public static Snapshot from(JsonObject root)
+        {
+            var snap = new Snapshot();
+            snap.version = root.get("version").getAsString();
+            snap.worldVersion = root.get("worldVersion").getAsInt();
+
+            var shapes = root.getAsJsonArray("shapes");
+
+            for (var jelem : root.getAsJsonArray("blocks")) {
+                var jblock = jelem.getAsJsonObject();
+                var def = normalize(jblock, shapes);
+                IGNORED_STATE_FIELDS.forEach(def.getAsJsonObject("states")::remove);
+
+                for (var jname : jblock.getAsJsonArray("names")) {
+                    snap.blocks.put(jname.getAsString(), def);
+                }
+            }
+            return snap;
+        }
+
+        //Removes non-definition fields and replaces shape ids with the actual
+        //boxes, so that definitions can be compared across versions.
+        static JsonObject normalize(JsonObject jblock, JsonArray shapes)
+        {
+            var def = new JsonObject();
+            for (var entry : jblock.entrySet()) {
+                if (!IGNORED_FIELDS.contains(entry.getKey())) {
+                    def.add(entry.getKey(), entry.getValue());
+                }
+            }
+            var states = copy(def.getAsJsonObject("states"));
+            def.add("states", states);
+            var occlShapes = states.get("occlusionShapes");
+            if (occlShapes.isJsonArray()) {
+                var boxes = new JsonArray();
+                for (var id : occlShapes.getAsJsonArray()) {
+                    boxes.add(wrapShape(shapes, id.getAsInt()));
+                }
+                states.add("occlusionShapes", boxes);
+            } else {
+                states.add("occlusionShapes", wrapShape(shapes, occlShapes.getAsInt()));
+            }
+            return def;
+        }
+        private static JsonObject wrapShape(JsonArray shapes, int id)
+        {
+            //wrapped in an object to tell apart a single shape from a per-state list
+            var obj = new JsonObject();
+            obj.add("boxes", shapes.get(id));
+            return obj;
+        }
+    }
+}
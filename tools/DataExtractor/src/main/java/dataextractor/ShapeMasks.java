@@ -0,0 +1,111 @@
+package dataextractor;
+
+import net.minecraft.core.*;
+import net.minecraft.world.phys.*;
+import net.minecraft.world.phys.shapes.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+class ShapeMasks
+{
+    /**
+     * Returns the shape boxes rounded to 1/16 units, as {minX, minY, minZ, maxX, maxY, maxZ} sextuples.
+     */
+    public static int[] getBoxes(VoxelShape shape)
+    {
+        return shape.toAabbs().stream().flatMapToInt(bb -> {
+            return IntStream.of(
+                (int)Math.round(bb.minX * 16), 
+                (int)Math.round(bb.minY * 16), 
+                (int)Math.round(bb.minZ * 16),
+                (int)Math.round(bb.maxX * 16), 
+                (int)Math.round(bb.maxY * 16), 
+                (int)Math.round(bb.maxZ * 16)
+            );
+        }).toArray();
+    }
+
+    /**
+     * Rasterizes the given boxes (from getBoxes()) into a 16x16x16 occupancy bitmap of 64 longs.
+     * Bit `(y * 16 + z) * 16 + x` is set if the voxel at (x, y, z) is inside the shape.
+     * Boxes are clipped to the block bounds.
+     */
+    public static long[] getVoxels(int[] boxes)
+    {
+        var voxels = new long[4096 / 64];
+
+        for (int i = 0; i < boxes.length; i += 6) {
+            int minX = clamp(boxes[i + 0]), minY = clamp(boxes[i + 1]), minZ = clamp(boxes[i + 2]);
+            int maxX = clamp(boxes[i + 3]), maxY = clamp(boxes[i + 4]), maxZ = clamp(boxes[i + 5]);
+
+            for (int y = minY; y < maxY; y++) {
+                for (int z = minZ; z < maxZ; z++) {
+                    for (int x = minX; x < maxX; x++) {
+                        int index = (y * 16 + z) * 16 + x;
+                        voxels[index >> 6] |= 1L << (index & 63);
+                    }
+                }
+            }
+        }
+        return voxels;
+    }
+
+    /**
+     * Returns a key identifying the shape geometry, regardless of how it is split into boxes.
+     * Shapes are compared by their voxel occupancy, or by their boxes if they exceed the block bounds.
+     */
+    public static Object getCanonicalKey(VoxelShape shape)
+    {
+        int[] boxes = getBoxes(shape);
+        for (int v : boxes) {
+            if (v < 0 || v > 16) {
+                return IntStream.of(boxes).boxed().collect(Collectors.toList());
+            }
+        }
+        return BitSet.valueOf(getVoxels(boxes));
+    }
+
+    /**
+     * Rasterizes the face projections of the shape, as given by {@link VoxelShape#getFaceShape(Direction)},
+     * into 16x16 coverage bitmasks. The result contains 4 longs for each direction, in the order of
+     * {@link Direction#values()} (down, up, north, south, west, east).
+     * <p>
+     * Bit `v * 16 + u` is set if the 1/16 cell at (u, v) of the face is covered, where (u, v) is
+     * (z, y) for the X axis, (x, z) for Y, and (x, y) for Z.
+     */
+    public static long[] getFaceMasks(VoxelShape shape)
+    {
+        var masks = new long[6 * 4];
+
+        for (Direction dir : Direction.values()) {
+            var axis = dir.getAxis();
+            int offset = dir.ordinal() * 4;
+
+            for (AABB box : shape.getFaceShape(dir).toAabbs()) {
+                int minU, minV, maxU, maxV;
+                switch (axis) {
+                    case X -> { minU = toCell(box.minZ); maxU = toCell(box.maxZ); minV = toCell(box.minY); maxV = toCell(box.maxY); }
+                    case Y -> { minU = toCell(box.minX); maxU = toCell(box.maxX); minV = toCell(box.minZ); maxV = toCell(box.maxZ); }
+                    default -> { minU = toCell(box.minX); maxU = toCell(box.maxX); minV = toCell(box.minY); maxV = toCell(box.maxY); }
+                }
+                for (int v = minV; v < maxV; v++) {
+                    for (int u = minU; u < maxU; u++) {
+                        int index = v * 16 + u;
+                        masks[offset + (index >> 6)] |= 1L << (index & 63);
+                    }
+                }
+            }
+        }
+        return masks;
+    }
+
+    private static int toCell(double coord)
+    {
+        return clamp((int)Math.round(coord * 16));
+    }
+    private static int clamp(int coord)
+    {
+        return Math.max(0, Math.min(16, coord));
+    }
+}
@@ -0,0 +1,125 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Writes the registry split into shards by namespace and material, so that the runtime
+ * only needs to load the shards referenced by a world.
+ * <p>
+ * Layout:
+ * <pre>
+ * index.json                   version, digest, materials, and for each shard: file, names and the global id of their first state
+ * shapes.json                  shapes, shapeVoxels and shapeFaces tables, shared by all shards
+ * &lt;namespace&gt;/&lt;material&gt;.json  { "blocks": [...] }, in the same format as blocks.json
+ * </pre>
+ * Blocks with names in multiple namespaces are split, each shard only lists its own names.
+ * Global state ids are the same as in blocks.json, `stateIds[i]` is the global id of state 0 of `names[i]`.
+ */
+class ShardedOutput
+{
+    public static void write(XData data, Path dir) throws IOException
+    {
+        var shards = new LinkedHashMap<String, XShard>();
+        var shardBlocks = new HashMap<XShard, List<XBlock>>();
+        int stateId = 0;
+
+        for (XBlock block : data.blocks) {
+            //names of this block, grouped by shard
+            var blockShards = new LinkedHashMap<XShard, List<String>>();
+
+            for (String name : block.names) {
+                String namespace = getNamespace(name);
+                var shard = shards.computeIfAbsent(namespace + "/" + block.material, k -> {
+                    var s = new XShard();
+                    s.file = k + ".json";
+                    s.namespace = namespace;
+                    s.group = block.material;
+                    return s;
+                });
+                shard.names.add(name);
+                shard.stateIds.add(stateId);
+                stateId += block.numStates;
+
+                blockShards.computeIfAbsent(shard, k -> new ArrayList<>()).add(name);
+            }
+            for (var entry : blockShards.entrySet()) {
+                var copy = block.withNames(entry.getValue());
+                copy.digest = copy.computeDigest(data.shapes);
+                shardBlocks.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(copy);
+            }
+        }
+
+        for (var shard : shards.values()) {
+            var contents = new XShardContents();
+            contents.blocks = shardBlocks.get(shard);
+
+            var path = dir.resolve(shard.file);
+            Files.createDirectories(path.getParent());
+            JsonOutput.write(contents, path);
+
+            shard.numBlocks = contents.blocks.size();
+            shard.digest = JsonOutput.digest(contents);
+        }
+
+        var shapes = new XShapeTables();
+        shapes.shapes = data.shapes;
+        shapes.shapeVoxels = data.shapeVoxels;
+        shapes.shapeFaces = data.shapeFaces;
+        JsonOutput.write(shapes, dir.resolve("shapes.json"));
+
+        var index = new XShardIndex();
+        index.version = data.version;
+        index.worldVersion = data.worldVersion;
+        index.numBlockStates = data.numBlockStates;
+        index.digest = data.digest;
+        index.heightmapTypes = data.heightmapTypes;
+        index.materials = data.materials;
+        index.shards.addAll(shards.values());
+        JsonOutput.write(index, dir.resolve("index.json"));
+
+        System.out.println("Wrote " + shards.size() + " registry shards to " + dir);
+    }
+
+    private static String getNamespace(String name)
+    {
+        int sep = name.indexOf(':');
+        return sep < 0 ? "minecraft" : name.substring(0, sep);
+    }
+
+    static class XShardIndex
+    {
+        public String version;
+        public int worldVersion;
+        public int numBlockStates;
+        //digest of the unsharded registry (blocks.json)
+        public String digest;
+        public List<String> heightmapTypes;
+        public Collection<XMaterial> materials;
+        public List<XShard> shards = new ArrayList<>();
+    }
+    static class XShard
+    {
+        public String file;
+        public String namespace;
+        public String group;
+        public int numBlocks;
+        //SHA-256 of the shard contents
+        public String digest;
+        public List<String> names = new ArrayList<>();
+        public List<Integer> stateIds = new ArrayList<>();
+    }
+    static class XShardContents
+    {
+        public List<XBlock> blocks;
+    }
+    static class XShapeTables
+    {
+        public List<int[]> shapes;
+        public List<long[]> shapeVoxels;
+        public List<long[]> shapeFaces;
+    }
+}
@@ -0,0 +1,169 @@
+package dataextractor;
+
+import dataextractor.Main.*;
+import net.minecraft.core.*;
+import net.minecraft.resources.*;
+import net.minecraft.world.level.block.state.*;
+import net.minecraft.world.level.block.state.properties.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Minimal perfect hash from canonical state keys to global state ids (see XStateTable), built with hash-and-displace.
+ * <p>
+ * The canonical key is the namespaced block name, followed by all properties sorted by name
+ * (the same order as `blocks[].properties`): `minecraft:oak_stairs[facing=east,half=top,shape=straight,waterlogged=false]`,
+ * or just the name if the block has no properties.
+ * <p>
+ * Lookup:
+ * <pre>
+ * d = displacements[hash(key, 0) % displacements.length]
+ * id = slots[hash(key, d) % slots.length]
+ * </pre>
+ * where `%` is unsigned and `hash()` is 32-bit FNV-1a over the UTF-8 bytes of the key, with the offset basis
+ * xor'ed with the seed, finalized with murmur3's fmix32. The result must be verified against the key, as
+ * unknown keys map to arbitrary ids.
+ * <p>
+ * Given the id, property values can be decoded without a lookup using `strides`:
+ * `valueIndex = (stateIndex / strides[block][prop]) % numValues[prop]`, the same mixed-radix order as XBlock.getStateIndex().
+ */
+class StateKeyHash
+{
+    //Average keys per bucket, higher values make smaller tables but slower construction.
+    private static final int BUCKET_SIZE = 4;
+    private static final int MAX_DISPLACEMENT = 1 << 24;
+
+    public int[] displacements;
+    public int[] slots;
+    //per block (index in `blocks`), stride of each property in `blocks[].properties`
+    public List<int[]> strides = new ArrayList<>();
+
+    public static StateKeyHash create(List<XBlock> xblocks)
+    {
+        var keys = new ArrayList<String>();
+
+        for (XBlock xblock : xblocks) {
+            for (String name : xblock.names) {
+                var block = Registry.BLOCK.get(new ResourceLocation(name));
+                var states = new String[xblock.numStates];
+
+                for (BlockState state : block.getStateDefinition().getPossibleStates()) {
+                    states[XBlock.getStateIndex(state)] = getKey(state);
+                }
+                keys.addAll(Arrays.asList(states));
+            }
+        }
+        var mph = new StateKeyHash();
+        mph.build(keys);
+
+        for (XBlock xblock : xblocks) {
+            var block = Registry.BLOCK.get(new ResourceLocation(xblock.names.get(0)));
+            var props = block.getStateDefinition().getProperties();
+            var strides = new int[props.size()];
+            int stride = 1, i = 0;
+
+            for (Property<?> prop : props) {
+                strides[i++] = stride;
+                stride *= prop.getPossibleValues().size();
+            }
+            mph.strides.add(strides);
+        }
+        return mph;
+    }
+
+    public static String getKey(BlockState state)
+    {
+        var sb = new StringBuilder();
+        sb.append(Registry.BLOCK.getKey(state.getBlock()));
+
+        var props = state.getBlock().getStateDefinition().getProperties();
+        if (!props.isEmpty()) {
+            char sep = '[';
+            for (Property<?> prop : props) {
+                sb.append(sep).append(prop.getName()).append('=').append(getValueName(state, prop));
+                sep = ',';
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+    private static <T extends Comparable<T>> String getValueName(BlockState state, Property<T> prop)
+    {
+        return prop.getName(state.getValue(prop));
+    }
+
+    //keys[i] maps to id i
+    private void build(List<String> keys)
+    {
+        int n = keys.size();
+        int numBuckets = Math.max(1, n / BUCKET_SIZE);
+
+        var keyBytes = new byte[n][];
+        var buckets = new ArrayList<List<Integer>>();
+        for (int i = 0; i < numBuckets; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            keyBytes[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+            buckets.get(Integer.remainderUnsigned(hash(keyBytes[i], 0), numBuckets)).add(i);
+        }
+
+        displacements = new int[numBuckets];
+        slots = new int[n];
+        Arrays.fill(slots, -1);
+
+        //place larger buckets first, while there is more free space
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < numBuckets; i++) {
+            if (!buckets.get(i).isEmpty()) order.add(i);
+        }
+        order.sort(Comparator.comparingInt((Integer b) -> -buckets.get(b).size()).thenComparingInt(b -> b));
+
+        var bucketSlots = new int[BUCKET_SIZE * 8];
+
+        for (int b : order) {
+            var bucket = buckets.get(b);
+            if (bucket.size() > bucketSlots.length) {
+                bucketSlots = new int[bucket.size()];
+            }
+            int d = 1;
+            while (!tryPlace(bucket, keyBytes, d, bucketSlots)) {
+                if (++d >= MAX_DISPLACEMENT) {
+                    throw new IllegalStateException("Failed to build state key hash (" + keys.get(bucket.get(0)) + ")");
+                }
+            }
+            displacements[b] = d;
+            for (int i = 0; i < bucket.size(); i++) {
+                slots[bucketSlots[i]] = bucket.get(i);
+            }
+        }
+    }
+    private boolean tryPlace(List<Integer> bucket, byte[][] keyBytes, int d, int[] bucketSlots)
+    {
+        for (int i = 0; i < bucket.size(); i++) {
+            int slot = Integer.remainderUnsigned(hash(keyBytes[bucket.get(i)], d), slots.length);
+            if (slots[slot] >= 0) return false;
+
+            for (int j = 0; j < i; j++) {
+                if (bucketSlots[j] == slot) return false;
+            }
+            bucketSlots[i] = slot;
+        }
+        return true;
+    }
+
+    public static int hash(byte[] data, int seed)
+    {
+        int h = 0x811C9DC5 ^ seed;
+        for (byte b : data) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,227 @@
+package dataextractor;
+
+import com.google.gson.*;
+import com.mojang.datafixers.*;
+import com.mojang.serialization.*;
+import dataextractor.Main.*;
+import net.minecraft.*;
+import net.minecraft.core.*;
+import net.minecraft.nbt.*;
+import net.minecraft.resources.*;
+import net.minecraft.util.datafix.*;
+import net.minecraft.util.datafix.fixes.*;
+import net.minecraft.world.level.block.*;
+import net.minecraft.world.level.block.state.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Runs block states from older versions through the game's data fixers, and writes tables
+ * mapping them to current global state ids to block_upgrades.json.
+ * <p>
+ * Old states are collected from the current registry, the definitions in blocks_versioned.jsonc,
+ * and the old names in block_aliases.jsonc. States that didn't exist in some version are harmless,
+ * the fixers leave them unchanged. Only post-flattening versions (&gt;= 1451) are covered, see LegacyRemap for older ones.
+ * <p>
+ * `keys` lists the old states in the canonical key format (see StateKeyHash). Each table applies to
+ * DataVersions from its `fromVersion` up to the next table's, and maps each key to a global state id,
+ * or -1 if the fixed state is not a known block (the game would load it as air).
+ * Tables are only emitted for versions where the result changes.
+ * <p>
+ * Options: --versioned blocks_versioned.jsonc  --aliases block_aliases.jsonc
+ */
+class UpgradeTables
+{
+    public static void run(XData data, Args args) throws IOException
+    {
+        var states = new LinkedHashMap<String, CompoundTag>();
+
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            addState(states, NbtUtils.writeBlockState(state));
+        }
+        var versionedPath = args.get("--versioned", null);
+        if (versionedPath != null) {
+            for (var jrec : JsonOutput.read(Path.of(versionedPath)).getAsJsonObject().getAsJsonArray("blocks")) {
+                addVersionedStates(states, jrec.getAsJsonObject());
+            }
+        }
+        var aliasesPath = args.get("--aliases", null);
+        if (aliasesPath != null) {
+            addAliasStates(states, Path.of(aliasesPath));
+        }
+
+        var fixer = DataFixers.getDataFixer();
+        int currentVersion = data.worldVersion;
+        var remap = XStateTable.createVanillaRemap(data.blocks);
+        var keys = new ArrayList<>(states.keySet());
+        var tags = new ArrayList<>(states.values());
+
+        var versions = getFixerVersions(fixer).stream()
+                                              .map(DataFixUtils::getVersion)
+                                              .distinct()
+                                              .filter(v -> v >= LegacyRemap.FLATTENING_VERSION && v < currentVersion)
+                                              .sorted()
+                                              .collect(Collectors.toList());
+
+        System.out.println("Upgrading " + keys.size() + " states from " + versions.size() + " versions...");
+
+        var tables = versions.parallelStream()
+                             .map(version -> createTable(fixer, tags, version, currentVersion, remap))
+                             .collect(Collectors.toList());
+
+        var output = new XUpgradeTables();
+        output.version = data.version;
+        output.worldVersion = currentVersion;
+        output.keys = keys;
+
+        int[] prev = null;
+        for (int i = 0; i < versions.size(); i++) {
+            if (!Arrays.equals(tables.get(i), prev)) {
+                var table = new XUpgradeTable();
+                table.fromVersion = versions.get(i);
+                table.remap = tables.get(i);
+                output.tables.add(table);
+                prev = table.remap;
+            }
+        }
+        JsonOutput.write(output, Path.of("block_upgrades.json"));
+
+        System.out.println("Wrote " + output.tables.size() + " upgrade tables");
+    }
+
+    private static int[] createTable(DataFixer fixer, List<CompoundTag> tags, int fromVersion, int toVersion, int[] remap)
+    {
+        var table = new int[tags.size()];
+
+        for (int i = 0; i < tags.size(); i++) {
+            var fixed = fixer.update(References.BLOCK_STATE, new Dynamic<>(NbtOps.INSTANCE, tags.get(i)), fromVersion, toVersion);
+            var tag = (CompoundTag)fixed.getValue();
+
+            //readBlockState() returns air for unknown blocks
+            var name = ResourceLocation.tryParse(tag.getString("Name"));
+            if (name == null || !Registry.BLOCK.containsKey(name)) {
+                table[i] = -1;
+                continue;
+            }
+            table[i] = remap[Block.getId(NbtUtils.readBlockState(tag))];
+        }
+        return table;
+    }
+
+    private static void addState(Map<String, CompoundTag> states, CompoundTag tag)
+    {
+        var sb = new StringBuilder(tag.getString("Name"));
+        var props = tag.getCompound("Properties");
+        if (!props.isEmpty()) {
+            char sep = '[';
+            for (String key : new TreeSet<>(props.getAllKeys())) {
+                sb.append(sep).append(key).append('=').append(props.getString(key));
+                sep = ',';
+            }
+            sb.append(']');
+        }
+        states.putIfAbsent(sb.toString(), tag);
+    }
+
+    //Adds all states of a blocks_versioned.jsonc record.
+    private static void addVersionedStates(Map<String, CompoundTag> states, JsonObject jrec)
+    {
+        var propNames = new ArrayList<String>();
+        var propValues = new ArrayList<List<String>>();
+
+        for (var jprop : jrec.getAsJsonArray("properties")) {
+            var obj = jprop.getAsJsonObject();
+            var values = new ArrayList<String>();
+
+            switch (obj.get("type").getAsString()) {
+                case "bool" -> values.addAll(List.of("true", "false"));
+                case "int" -> {
+                    for (int v = obj.get("min").getAsInt(); v <= obj.get("max").getAsInt(); v++) {
+                        values.add(Integer.toString(v));
+                    }
+                }
+                default -> obj.getAsJsonArray("values").forEach(v -> values.add(v.getAsString()));
+            }
+            propNames.add(obj.get("name").getAsString());
+            propValues.add(values);
+        }
+        int numStates = propValues.stream().mapToInt(List::size).reduce(1, (a, b) -> a * b);
+
+        for (var jname : jrec.getAsJsonArray("names")) {
+            String name = new ResourceLocation(jname.getAsString()).toString();
+
+            for (int i = 0; i < numStates; i++) {
+                var tag = new CompoundTag();
+                tag.putString("Name", name);
+
+                if (!propNames.isEmpty()) {
+                    var props = new CompoundTag();
+                    int index = i;
+                    for (int p = 0; p < propNames.size(); p++) {
+                        var values = propValues.get(p);
+                        props.putString(propNames.get(p), values.get(index % values.size()));
+                        index /= values.size();
+                    }
+                    tag.put("Properties", props);
+                }
+                addState(states, tag);
+            }
+        }
+    }
+
+    //Adds the states of renamed blocks, using the properties of the current block they were renamed to.
+    private static void addAliasStates(Map<String, CompoundTag> states, Path path) throws IOException
+    {
+        var renames = new HashMap<String, String>();
+        for (var jelem : JsonOutput.read(path).getAsJsonArray()) {
+            for (var entry : jelem.getAsJsonObject().getAsJsonObject("renames").entrySet()) {
+                renames.put(entry.getKey(), entry.getValue().getAsString());
+            }
+        }
+        for (String oldName : renames.keySet()) {
+            String name = oldName;
+            for (int i = 0; i < renames.size() && renames.containsKey(name); i++) {
+                name = renames.get(name);
+            }
+            var block = Registry.BLOCK.getOptional(new ResourceLocation(name));
+            if (block.isEmpty()) continue;
+
+            for (BlockState state : block.get().getStateDefinition().getPossibleStates()) {
+                var tag = NbtUtils.writeBlockState(state);
+                tag.putString("Name", new ResourceLocation(oldName).toString());
+                addState(states, tag);
+            }
+        }
+    }
+
+    //DataFixerUpper doesn't expose the versions it has fixers for.
+    //These are version keys (version * 10 + subVersion), see DataFixUtils.makeKey().
+    @SuppressWarnings("unchecked")
+    private static Collection<Integer> getFixerVersions(DataFixer fixer)
+    {
+        try {
+            var field = fixer.getClass().getDeclaredField("fixerVersions");
+            field.setAccessible(true);
+            return (Collection<Integer>)field.get(fixer);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Failed to get data fixer versions", ex);
+        }
+    }
+
+    static class XUpgradeTables
+    {
+        public String version;
+        public int worldVersion;
+        public List<String> keys;
+        public List<XUpgradeTable> tables = new ArrayList<>();
+    }
+    static class XUpgradeTable
+    {
+        public int fromVersion;
+        //global state id for each key
+        public int[] remap;
+    }
+}
@@ -0,0 +1,117 @@
+package dataextractor;
+
+import dataextractor.Main.Args;
+import dataextractor.RegistryMerger.Snapshot;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs the extractor against multiple game versions, and merges the results into blocks_versioned.jsonc.
+ * <p>
+ * Each subdirectory of `--versions` must contain the runtime classpath (jars) of the extractor
+ * built against one Minecraft version, e.g. the `lib` folder from `gradlew installDist -Pminecraft_version=...`.
+ * Every version is extracted by a separate worker JVM, at most `--threads` at a time.
+ * <p>
+ * Only versions from Main.MIN_WORLD_VERSION (1.17) onwards are supported: Main uses blocks, materials and
+ * level APIs added in 1.17, and Mojang mappings are not available before 1.14.4 anyway. Workers for older
+ * versions fail at startup. Definitions of older versions must be taken from an existing blocks_versioned.jsonc.
+ * <p>
+ * Usage: VersionDriver --versions &lt;dir&gt; [--aliases block_aliases.jsonc] [--out blocks_versioned.jsonc] [--threads N]
+ */
+public class VersionDriver
+{
+    public static void main(String[] rawArgs) throws Throwable
+    {
+        var args = new Args(rawArgs);
+        var versionsDir = Path.of(args.get("--versions", "versions"));
+        var aliasesPath = args.get("--aliases", null);
+        var outPath = Path.of(args.get("--out", "blocks_versioned.jsonc"));
+        int numThreads = args.getInt("--threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+        List<Path> versionDirs;
+        try (var files = Files.list(versionsDir)) {
+            versionDirs = files.filter(Files::isDirectory).sorted().toList();
+        }
+        if (versionDirs.size() < 2) {
+            throw new IllegalArgumentException("At least two versions are needed in " + versionsDir);
+        }
+
+        System.out.println("Extracting " + versionDirs.size() + " versions using " + numThreads + " workers...");
+
+        var pool = Executors.newFixedThreadPool(numThreads);
+        var tasks = new ArrayList<Future<Snapshot>>();
+        for (var dir : versionDirs) {
+            tasks.add(pool.submit(() -> extract(dir)));
+        }
+        var snapshots = new ArrayList<Snapshot>();
+        try {
+            for (var task : tasks) {
+                snapshots.add(task.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        snapshots.sort(Comparator.comparingInt(s -> s.worldVersion));
+
+        System.out.println("Merging...");
+
+        var merger = new RegistryMerger();
+        if (aliasesPath != null) {
+            merger.addRenames(RegistryMerger.readRenames(Path.of(aliasesPath)));
+        }
+        for (int i = 0; i + 1 < snapshots.size(); i++) {
+            var older = snapshots.get(i);
+            var newer = snapshots.get(i + 1);
+            int numRecords = merger.getRecords().size();
+            merger.addTransition(older, newer);
+
+            System.out.println(older.version + " -> " + newer.version + ": " + (merger.getRecords().size() - numRecords) + " changed definitions");
+        }
+        merger.write(outPath);
+
+        System.out.println("Done");
+    }
+
+    private static Snapshot extract(Path versionDir) throws IOException, InterruptedException
+    {
+        var workDir = Files.createTempDirectory("dataextractor-" + versionDir.getFileName());
+        var logFile = workDir.resolve("extractor.log").toFile();
+        var java = ProcessHandle.current().info().command().orElse("java");
+
+        try {
+            var proc = new ProcessBuilder(java, "-cp", versionDir.toAbsolutePath() + File.separator + "*", Main.class.getName())
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logFile)
+                .start();
+
+            int exitCode = proc.waitFor();
+            if (exitCode != 0) {
+                //the work dir is deleted below, keep the end of the log
+                var log = Files.readAllLines(logFile.toPath());
+                var tail = String.join("\n", log.subList(Math.max(0, log.size() - 20), log.size()));
+                throw new IOException("Extractor for " + versionDir + " failed with exit code " + exitCode + ":\n" + tail);
+            }
+            var snapshot = Snapshot.load(workDir.resolve("blocks.json"));
+            if (snapshot.worldVersion < Main.MIN_WORLD_VERSION) {
+                throw new IOException("Unsupported version " + snapshot.version + " in " + versionDir + ", versions before world version " + Main.MIN_WORLD_VERSION + " can't be extracted");
+            }
+            System.out.println("Extracted " + snapshot.version + " (" + snapshot.blocks.size() + " blocks)");
+            return snapshot;
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException
+    {
+        try (var files = Files.walk(dir)) {
+            for (var path : (Iterable<Path>)files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package dataextractor;
+
+import net.minecraft.core.*;
+import net.minecraft.resources.*;
+import net.minecraft.world.level.*;
+import net.minecraft.world.level.biome.BiomeManager;
+import net.minecraft.world.level.block.state.*;
+import net.minecraft.world.level.chunk.*;
+import net.minecraft.world.level.dimension.*;
+import net.minecraft.world.level.levelgen.*;
+import net.minecraft.world.level.levelgen.feature.*;
+import net.minecraft.world.level.levelgen.structure.*;
+import net.minecraft.world.level.levelgen.synth.*;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Generates chunks offline, without a server or level.
+ * <p>
+ * Only the terrain stages are run: biomes, noise, surface and bedrock. Features and
+ * structures need a WorldGenRegion backed by a ServerLevel, so they are not placed.
+ * <p>
+ * Some generator internals are accessed by reflection, which relies on the extractor
+ * running with the official (Mojang) mappings.
+ */
+class XWorldGen
+{
+    public static final List<ResourceKey<LevelStem>> DIMENSIONS = List.of(LevelStem.OVERWORLD, LevelStem.NETHER, LevelStem.END);
+
+    private static final RegistryAccess.RegistryHolder registries = RegistryAccess.builtin();
+
+    //Noise fill only uses structures for terrain adaptation (beardifier)
+    private static final StructureFeatureManager NO_STRUCTURES = new StructureFeatureManager(null, null) {
+        @Override
+        public Stream<? extends StructureStart<?>> startsForFeature(SectionPos pos, StructureFeature<?> feature)
+        {
+            return Stream.empty();
+        }
+    };
+
+    public final ResourceKey<LevelStem> dimension;
+    public final long seed;
+    public final DimensionType type;
+    private final NoiseBasedChunkGenerator generator;
+    private final NoiseGeneratorSettings settings;
+    private final SurfaceNoise surfaceNoise;
+    private final Method setBedrock;
+    private final LevelHeightAccessor heightAccessor;
+
+    public XWorldGen(ResourceKey<LevelStem> dimension, long seed)
+    {
+        this.dimension = dimension;
+        this.seed = seed;
+
+        var stems = DimensionType.defaultDimensions(
+            registries.registryOrThrow(Registry.DIMENSION_TYPE_REGISTRY),
+            registries.registryOrThrow(Registry.BIOME_REGISTRY),
+            registries.registryOrThrow(Registry.NOISE_GENERATOR_SETTINGS_REGISTRY),
+            seed
+        );
+        var stem = stems.get(dimension);
+        this.type = stem.type();
+        this.generator = (NoiseBasedChunkGenerator)stem.generator();
+
+        try {
+            this.settings = ((Supplier<NoiseGeneratorSettings>)getField("settings")).get();
+            this.surfaceNoise = (SurfaceNoise)getField("surfaceNoise");
+            this.setBedrock = NoiseBasedChunkGenerator.class.getDeclaredMethod("setBedrock", ChunkAccess.class, Random.class);
+            this.setBedrock.setAccessible(true);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Failed to access chunk generator internals", ex);
+        }
+        int minY = type.minY();
+        int height = type.height();
+        this.heightAccessor = new LevelHeightAccessor() {
+            @Override public int getHeight() { return height; }
+            @Override public int getMinBuildHeight() { return minY; }
+        };
+    }
+
+    /** Returns the name of the dimension, e.g. "overworld". */
+    public String getName()
+    {
+        return dimension.location().getPath();
+    }
+
+    public ProtoChunk generate(int chunkX, int chunkZ)
+    {
+        var chunk = new ProtoChunk(new ChunkPos(chunkX, chunkZ), UpgradeData.EMPTY, heightAccessor);
+
+        generator.createBiomes(registries.registryOrThrow(Registry.BIOME_REGISTRY), chunk);
+        generator.fillFromNoise(Runnable::run, NO_STRUCTURES, chunk).join();
+        buildSurface(chunk);
+
+        return chunk;
+    }
+
+    //Same as NoiseBasedChunkGenerator.buildSurfaceAndBedrock(). Instead of a WorldGenRegion, biomes are read
+    //through a BiomeManager over the chunk's biome container, and over the biome source for the neighbor
+    //chunks (which is what their containers would be filled with).
+    private void buildSurface(ProtoChunk chunk)
+    {
+        var chunkPos = chunk.getPos();
+        var random = new WorldgenRandom();
+        random.setBaseChunkSeed(chunkPos.x, chunkPos.z);
+
+        int minX = chunkPos.getMinBlockX();
+        int minZ = chunkPos.getMinBlockZ();
+        var chunkBiomes = chunk.getBiomes();
+        var biomeSource = generator.getBiomeSource();
+        BiomeManager.NoiseBiomeSource noiseBiomes = (qx, qy, qz) ->
+            QuartPos.toSection(qx) == chunkPos.x && QuartPos.toSection(qz) == chunkPos.z
+                ? chunkBiomes.getNoiseBiome(qx, qy, qz)
+                : biomeSource.getNoiseBiome(qx, qy, qz);
+        var biomes = new BiomeManager(noiseBiomes, BiomeManager.obfuscateSeed(seed), type.getBiomeZoomer());
+        var pos = new BlockPos.MutableBlockPos();
+
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int wx = minX + x;
+                int wz = minZ + z;
+                int startY = chunk.getHeight(Heightmap.Types.WORLD_SURFACE_WG, x, z) + 1;
+                double noise = surfaceNoise.getSurfaceNoiseValue(wx * 0.0625, wz * 0.0625, 0.0625, x * 0.0625) * 15.0;
+
+                var biome = biomes.getBiome(pos.set(wx, startY, wz));
+                biome.buildSurfaceAt(
+                    random, chunk, wx, wz, startY, noise,
+                    settings.getDefaultBlock(), settings.getDefaultFluid(),
+                    generator.getSeaLevel(), settings.getMinSurfaceLevel(), seed
+                );
+            }
+        }
+        try {
+            setBedrock.invoke(generator, chunk, random);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Object getField(String name) throws ReflectiveOperationException
+    {
+        var field = NoiseBasedChunkGenerator.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(generator);
+    }
+
+    /** Calls `visitor(x, y, z, state)` for every block in the chunk, in YZX order. */
+    public static void forEachBlock(ChunkAccess chunk, BlockVisitor visitor)
+    {
+        var pos = new BlockPos.MutableBlockPos();
+        int minX = chunk.getPos().getMinBlockX();
+        int minZ = chunk.getPos().getMinBlockZ();
+
+        for (int y = chunk.getMinBuildHeight(); y < chunk.getMaxBuildHeight(); y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    visitor.accept(x, y, z, chunk.getBlockState(pos.set(minX + x, y, minZ + z)));
+                }
+            }
+        }
+    }
+
+    public interface BlockVisitor
+    {
+        void accept(int x, int y, int z, BlockState state);
+    }
+}
@@ -0,0 +1,129 @@
+package legacydataextractor;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import com.google.gson.*;
+import com.google.gson.reflect.*;
+import com.google.gson.stream.*;
+
+/**
+ * Streams objects as pretty printed json straight into a file, writing arrays of primitives
+ * and strings inline - e.g. `"flags": [1, 2, 3]` instead of one element per line.
+ * Memory usage is bound by the largest inline array rather than the whole document.
+ */
+class JsonOutput
+{
+    private static final Gson gson = new GsonBuilder()
+        .disableHtmlEscaping()
+        .registerTypeAdapterFactory(new InlineArrayAdapterFactory())
+        .create();
+
+    public static void write(Object obj, Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             JsonWriter writer = new JsonWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), 1 << 16)))
+        {
+            writer.setIndent("  ");
+            gson.toJson(obj, obj.getClass(), writer);
+        }
+    }
+
+    private static class InlineArrayAdapterFactory implements TypeAdapterFactory
+    {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            Class<?> rawType = type.getRawType();
+            if (!rawType.isArray() && !Collection.class.isAssignableFrom(rawType)) {
+                return null;
+            }
+            final TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+
+            return new TypeAdapter<T>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException
+                {
+                    String inlined = value == null ? null : tryInline(value);
+                    if (inlined != null) {
+                        out.jsonValue(inlined);
+                    } else {
+                        delegate.write(out, value);
+                    }
+                }
+                @Override
+                public T read(JsonReader in) throws IOException
+                {
+                    return delegate.read(in);
+                }
+            };
+        }
+
+        //Returns the compact json for arrays containing only numbers, booleans, strings or nulls; null otherwise.
+        //Same layout as the old regex minifier: `[1,2,3]`, but `["a", null, "b"]`.
+        private static String tryInline(Object arr)
+        {
+            StringBuilder sb = new StringBuilder("[");
+            Object prev = null;
+            boolean first = true;
+
+            if (arr instanceof Collection) {
+                for (Object elem : (Collection<?>)arr) {
+                    if (!append(sb, elem, first, prev)) return null;
+                    prev = elem;
+                    first = false;
+                }
+            } else {
+                int len = Array.getLength(arr);
+                for (int i = 0; i < len; i++) {
+                    Object elem = Array.get(arr, i);
+                    if (!append(sb, elem, first, prev)) return null;
+                    prev = elem;
+                    first = false;
+                }
+            }
+            return sb.append(']').toString();
+        }
+        private static boolean append(StringBuilder sb, Object value, boolean first, Object prev)
+        {
+            if (!first) {
+                boolean isPrimitive = prev instanceof Number || prev instanceof Boolean;
+                sb.append(isPrimitive ? "," : ", ");
+            }
+            if (value == null || value instanceof Number || value instanceof Boolean) {
+                sb.append(value);
+            } else if (value instanceof String) {
+                appendString(sb, (String)value);
+            } else {
+                return false;
+            }
+            return true;
+        }
+        private static void appendString(StringBuilder sb, String str)
+        {
+            sb.append('"');
+            for (int i = 0; i < str.length(); i++) {
+                char ch = str.charAt(i);
+                switch (ch) {
+                    case '"':  sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (ch < 0x20) {
+                            sb.append(String.format("\\u%04x", (int)ch));
+                        } else {
+                            sb.append(ch);
+                        }
+                        break;
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
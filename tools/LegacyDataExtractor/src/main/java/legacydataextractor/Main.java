@@ -1,9 +1,9 @@
 package legacydataextractor;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map.*;
-import java.util.regex.*;
 import java.util.stream.*;
 
 import com.google.common.base.*;
@@ -41,40 +41,13 @@ public class Main
                 data.numBlockStates = maxStateId;
             }
         }
+        data.stateTable = new XStateTable(data.blocks);
 
-        Gson gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .disableHtmlEscaping()
-            .create();
-        String json = gson.toJson(data);
-
-        //int arrays \[\s*(?:\d+\s*,\s*)*\s*\d+\s*\]
-        json = minify(json, "\\[\\s*(?:\\d+\\s*,\\s*)*\\s*\\d+\\s*\\]");
-        //string arrays \[\s*(?:\"[A-Za-z0-9 _\-:$]*\"\s*,\s*)*\s*\"[A-Za-z0-9 _\-:$]*\"\s*\]
-        json = minify(json, "\\[\\s*(?:(?:null|\\\"[A-Za-z0-9 ,_\\-:$]*\\\")\\s*,\\s*)*\\s*(?:null|\\\"[A-Za-z0-9 ,_\\-:$]*\\\")\\s*\\]");
-
-        Files.write(json, new File("blocks.json"), Charsets.UTF_8);
+        JsonOutput.write(data, Paths.get("blocks.json"));
 
         System.out.println("Done");
     }
 
-    static String minify(String json, String regex)
-    {
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(json);
-        StringBuffer sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String s = matcher.group(0);
-            s = s.replaceAll("[\\r\\n\\s]+", "").replace("\",", "\", ");
-            s = Matcher.quoteReplacement(s);
-
-            matcher.appendReplacement(sb, s);
-        }
-        matcher.appendTail(sb);
-        return sb.toString();
-    }
-
     static class XData
     {
         public String version;
@@ -82,6 +55,9 @@ public class Main
         public int numBlockStates; //num of non existing block states based on metadata values
         public List<XBlock> blocks = new ArrayList<>();
         public Collection<XMaterial> materials = XMaterial.known.values();
+        //boxes of each occlusion shape id, in the same format as the modern blocks.json
+        public List<int[]> shapes = Arrays.asList(new int[0], new int[] { 0, 0, 0, 16, 16, 16 });
+        public XStateTable stateTable;
     }
     static class XBlock
     {
@@ -120,6 +96,8 @@ public class Main
         public Object/* int|List<int> */ flags;
         public Object/* int|List<int> */ light;
         public Object/* string|List<String>*/ states;
+        //non deduplicated values for each metadata, used to build XStateTable
+        public transient int[] rawFlags = new int[16], rawLight = new int[16], rawOcclusionShapes = new int[16];
 
         public XBlockStates(Block block)
         {
@@ -131,7 +109,7 @@ public class Main
             int blockId = Block.getIdFromBlock(block);
             for (int m = 0; m < 16; m++) {
                 IBlockState state = Block.BLOCK_STATE_IDS.getByValue(blockId << 4 | m);
-                if (state == null) {
+                if (state == null || !isValidMeta(block, m)) {
                     state = block.getDefaultState();
                     states.add(null);
                 } else {
@@ -139,6 +117,10 @@ public class Main
                 }
                 flags.add(getFlags(state));
                 light.add(state.getLightValue() << 4 | Math.min(15, state.getLightOpacity()));
+
+                rawFlags[m] = flags.get(m);
+                rawLight[m] = light.get(m);
+                rawOcclusionShapes[m] = state.isOpaqueCube() ? 1 : 0;
             }
             this.flags = deduplicate(flags);
             this.light = deduplicate(light);
@@ -149,6 +131,18 @@ public class Main
             this.states = deduplicate(states);
         }
 
+        //Undefined metadata values don't survive a getStateFromMeta()/getMetaFromState() round trip,
+        //they map to some other (usually the default) state.
+        private static boolean isValidMeta(Block block, int meta)
+        {
+            try {
+                return block.getMetaFromState(block.getStateFromMeta(meta)) == meta;
+            } catch (RuntimeException ex) {
+                //some blocks index arrays with the raw meta
+                return false;
+            }
+        }
+
         private String buildStateString(IBlockState state)
         {
             StringBuilder sb = new StringBuilder();
@@ -206,6 +200,35 @@ public class Main
             return flags;
         }
     }
+    /**
+     * Per-state attributes as flat columns, indexed by the legacy state id (`id << 4 | meta`).
+     * Unused metadata values have the attributes of the block's default state, and unused ids are zero.
+     */
+    static class XStateTable
+    {
+        public static final int NUM_STATES = 4096;
+
+        public int[] flags = new int[NUM_STATES];
+        public int[] emission = new int[NUM_STATES];
+        public int[] opacity = new int[NUM_STATES];
+        //index in `shapes`: 0 = empty, 1 = full cube. 1.12 only occludes light on opaque cubes, other blocks use the opacity.
+        public int[] occlusionShapes = new int[NUM_STATES];
+
+        public XStateTable(List<XBlock> xblocks)
+        {
+            for (XBlock block : xblocks) {
+                XBlockStates states = block.states;
+
+                for (int m = 0; m < 16; m++) {
+                    int id = block.id << 4 | m;
+                    flags[id] = states.rawFlags[m];
+                    emission[id] = states.rawLight[m] >> 4;
+                    opacity[id] = states.rawLight[m] & 15;
+                    occlusionShapes[id] = states.rawOcclusionShapes[m];
+                }
+            }
+        }
+    }
     static class XMaterial
     {
         public static final Map<Material, XMaterial> known = new LinkedHashMap<>();